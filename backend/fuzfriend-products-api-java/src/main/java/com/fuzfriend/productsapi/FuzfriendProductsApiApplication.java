@@ -2,8 +2,12 @@ package com.fuzfriend.productsapi;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// RedisConfig owns the Redis beans and skips them when no host is configured.
+@SpringBootApplication(exclude = RedisAutoConfiguration.class)
+@EnableScheduling
 public class FuzfriendProductsApiApplication {
     public static void main(String[] args) {
         SpringApplication.run(FuzfriendProductsApiApplication.class, args);
@@ -1,18 +1,23 @@
 package com.fuzfriend.productsapi.config;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration
 public class RedisConfig {
+    // The local and test profiles set the host to "" to run without Redis, which @ConditionalOnProperty
+    // would still count as set.
+    static final String REDIS_HOST_SET = "'${spring.data.redis.host:}' != ''";
 
     @Bean
-    @ConditionalOnProperty(name = "spring.data.redis.host")
+    @ConditionalOnExpression(REDIS_HOST_SET)
     public RedisConnectionFactory redisConnectionFactory(
             @Value("${spring.data.redis.host}") String host,
             @Value("${spring.data.redis.port:6379}") int port) {
@@ -20,8 +25,18 @@ public class RedisConfig {
     }
 
     @Bean
-    @ConditionalOnProperty(name = "spring.data.redis.host")
+    @ConditionalOnExpression(REDIS_HOST_SET)
     public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory factory) {
         return new StringRedisTemplate(factory);
     }
+
+    @Bean
+    @ConditionalOnExpression(REDIS_HOST_SET)
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory factory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(factory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
 }
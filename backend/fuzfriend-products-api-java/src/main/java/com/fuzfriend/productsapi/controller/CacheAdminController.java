@@ -0,0 +1,35 @@
+package com.fuzfriend.productsapi.controller;
+
+import com.fuzfriend.productsapi.dto.HotKeyStats;
+import com.fuzfriend.productsapi.service.CacheService;
+import com.fuzfriend.productsapi.service.CacheWarmer;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheAdminController {
+    private final CacheService cache;
+    private final CacheWarmer warmer;
+
+    public CacheAdminController(CacheService cache, CacheWarmer warmer) {
+        this.cache = cache;
+        this.warmer = warmer;
+    }
+
+    @GetMapping("/hot-keys")
+    public ResponseEntity<List<HotKeyStats>> getHotKeys() {
+        return ResponseEntity.ok(cache.getHotKeys());
+    }
+
+    @PostMapping("/warm-up")
+    public ResponseEntity<Void> warmUp() {
+        warmer.trigger();
+        return ResponseEntity.accepted().build();
+    }
+}
@@ -1,22 +1,25 @@
 package com.fuzfriend.productsapi.controller;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fuzfriend.productsapi.dto.ProductQueryDto;
 import com.fuzfriend.productsapi.dto.ProductResponse;
 import com.fuzfriend.productsapi.model.Product;
 import com.fuzfriend.productsapi.service.CacheService;
+import com.fuzfriend.productsapi.service.CatalogChangedEvent;
+import com.fuzfriend.productsapi.service.ProductCacheKeys;
 import com.fuzfriend.productsapi.service.ProductService;
+import com.fuzfriend.productsapi.service.QueryLog;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.HexFormat;
+import java.io.IOException;
+import java.net.URI;
 import java.util.Optional;
 
 @RestController
@@ -24,32 +27,15 @@ import java.util.Optional;
 public class ProductsController {
     private final ProductService service;
     private final CacheService cache;
-    private static final ObjectMapper MAPPER = new ObjectMapper()
-            .setPropertyNamingStrategy(PropertyNamingStrategies.LOWER_CAMEL_CASE)
-            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    private final QueryLog queryLog;
+    private final ApplicationEventPublisher events;
 
-    public ProductsController(ProductService service, CacheService cache) {
+    public ProductsController(ProductService service, CacheService cache, QueryLog queryLog,
+                              ApplicationEventPublisher events) {
         this.service = service;
         this.cache = cache;
-    }
-
-    private static String sha256(String input) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(input.getBytes(StandardCharsets.UTF_8));
-            return HexFormat.of().formatHex(hash).toUpperCase();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException(e);
-        }
-    }
-
-    private static String buildSearchKey(ProductQueryDto query) {
-        try {
-            String json = MAPPER.writeValueAsString(query == null ? new ProductQueryDto() : query);
-            return "Products:Search:" + sha256(json);
-        } catch (JsonProcessingException e) {
-            return "Products:Search:ERR";
-        }
+        this.queryLog = queryLog;
+        this.events = events;
     }
 
     private static boolean shouldBypassCache(HttpServletRequest request) {
@@ -61,133 +47,187 @@ public class ProductsController {
                 || (pragma != null && pragma.toLowerCase().contains("no-cache"));
     }
 
-    @GetMapping
-    public ResponseEntity<ProductResponse> getProducts(@RequestParam(defaultValue = "1") int page,
-                                                       @RequestParam(defaultValue = "20") int pageSize,
-                                                       HttpServletRequest request) throws JsonProcessingException {
+    private static ResponseEntity.BodyBuilder ok(ResponseFormat format, String cacheStatus) {
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .header("X-Cache-Status", cacheStatus);
+    }
+
+    @GetMapping(produces = {ResponseFormat.JSON_VALUE, ResponseFormat.SMILE_VALUE, ResponseFormat.CBOR_VALUE})
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = ProductResponse.class)))
+    public ResponseEntity<byte[]> getProducts(@RequestParam(defaultValue = "1") int page,
+                                              @RequestParam(defaultValue = "20") int pageSize,
+                                              HttpServletRequest request) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
         boolean bypass = shouldBypassCache(request);
-        String cacheKey = "Products:Get:page=" + page + ";pageSize=" + pageSize;
+        String cacheKey = format.cacheKey(ProductCacheKeys.page(cache.currentGeneration(), page, pageSize));
+        ProductQueryDto q = new ProductQueryDto();
+        q.setPage(page);
+        q.setPageSize(pageSize);
+        queryLog.record(QueryLog.Kind.PAGE, q, format.codec());
         if (!bypass) {
-            String cached = cache.get(cacheKey);
-            if (cached != null && !cached.isBlank()) {
-                ProductResponse resp = MAPPER.readValue(cached, ProductResponse.class);
-                return ResponseEntity.ok()
-                        .header("X-Cache-Status", "HIT")
+            byte[] cached = cache.getEncoded(cacheKey, format.codec(), ProductResponse.class);
+            if (cached != null) {
+                return ok(format, "HIT")
                         .header("X-Cache-Key", cacheKey)
-                        .body(resp);
+                        .body(cached);
             }
         }
-        ProductQueryDto q = new ProductQueryDto();
-        q.setPage(page);
-        q.setPageSize(pageSize);
-        ProductResponse result = service.getProducts(q);
+        byte[] result = format.encode(service.getProducts(q));
 
         if (!bypass) {
-            cache.set(cacheKey, MAPPER.writeValueAsString(result));
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "MISS")
+            cache.setEncodedAsync(cacheKey, format.codec(), result);
+            return ok(format, "MISS")
                     .header("X-Cache-Key", cacheKey)
                     .body(result);
         } else {
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "BYPASS")
+            return ok(format, "BYPASS")
                     .body(result);
         }
     }
 
-    @GetMapping("/count")
-    public ResponseEntity<Integer> getProductsCount(HttpServletRequest request) {
+    @GetMapping(value = "/count", produces = {ResponseFormat.JSON_VALUE, ResponseFormat.SMILE_VALUE, ResponseFormat.CBOR_VALUE})
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Integer.class)))
+    public ResponseEntity<byte[]> getProductsCount(HttpServletRequest request) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
         boolean bypass = shouldBypassCache(request);
-        String cacheKey = "Products:Count";
+        String cacheKey = format.cacheKey(ProductCacheKeys.count(cache.currentGeneration()));
+        queryLog.record(QueryLog.Kind.COUNT, null, format.codec());
         if (!bypass) {
-            String cached = cache.get(cacheKey);
-            if (cached != null && !cached.isBlank()) {
-                try {
-                    int count = Integer.parseInt(cached);
-                    return ResponseEntity.ok()
-                            .header("X-Cache-Status", "HIT")
-                            .header("X-Cache-Key", cacheKey)
-                            .body(count);
-                } catch (NumberFormatException ignored) {}
+            byte[] cached = cache.getEncoded(cacheKey, format.codec(), Integer.class);
+            if (cached != null) {
+                return ok(format, "HIT")
+                        .header("X-Cache-Key", cacheKey)
+                        .body(cached);
             }
         }
         ProductResponse result = service.getProducts(new ProductQueryDto());
+        byte[] count = format.encode(result.getTotalCount());
         if (!bypass) {
-            cache.set(cacheKey, Integer.toString(result.getTotalCount()));
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "MISS")
+            cache.setEncodedAsync(cacheKey, format.codec(), count);
+            return ok(format, "MISS")
                     .header("X-Cache-Key", cacheKey)
-                    .body(result.getTotalCount());
+                    .body(count);
         } else {
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "BYPASS")
-                    .body(result.getTotalCount());
+            return ok(format, "BYPASS")
+                    .body(count);
         }
     }
 
-    @PostMapping("/search")
-    public ResponseEntity<ProductResponse> searchProducts(@RequestBody(required = false) ProductQueryDto query,
-                                                          HttpServletRequest request) throws JsonProcessingException {
+    @PostMapping(value = "/search", produces = {ResponseFormat.JSON_VALUE, ResponseFormat.SMILE_VALUE, ResponseFormat.CBOR_VALUE})
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = ProductResponse.class)))
+    public ResponseEntity<byte[]> searchProducts(@RequestBody(required = false) ProductQueryDto query,
+                                                 HttpServletRequest request) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
         boolean bypass = shouldBypassCache(request);
-        String cacheKey = buildSearchKey(query);
+        String cacheKey = format.cacheKey(ProductCacheKeys.search(cache.currentGeneration(), query));
+        queryLog.record(QueryLog.Kind.SEARCH, query, format.codec());
         if (!bypass) {
-            String cached = cache.get(cacheKey);
-            if (cached != null && !cached.isBlank()) {
-                ProductResponse resp = MAPPER.readValue(cached, ProductResponse.class);
-                return ResponseEntity.ok()
-                        .header("X-Cache-Status", "HIT")
+            byte[] cached = cache.getEncoded(cacheKey, format.codec(), ProductResponse.class);
+            if (cached != null) {
+                return ok(format, "HIT")
                         .header("X-Cache-Key", cacheKey)
-                        .body(resp);
+                        .body(cached);
             }
         }
-        ProductResponse result = service.getProducts(query);
+        byte[] result = format.encode(service.getProducts(query));
         if (!bypass) {
-            cache.set(cacheKey, MAPPER.writeValueAsString(result));
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "MISS")
+            cache.setEncodedAsync(cacheKey, format.codec(), result);
+            return ok(format, "MISS")
                     .header("X-Cache-Key", cacheKey)
                     .body(result);
         } else {
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "BYPASS")
+            return ok(format, "BYPASS")
                     .body(result);
         }
     }
 
-    @GetMapping("/{id}")
-    public ResponseEntity<Product> getProductById(@PathVariable int id, HttpServletRequest request) throws JsonProcessingException {
+    @GetMapping(value = "/{id}", produces = {ResponseFormat.JSON_VALUE, ResponseFormat.SMILE_VALUE, ResponseFormat.CBOR_VALUE})
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Product.class)))
+    public ResponseEntity<byte[]> getProductById(@PathVariable int id, HttpServletRequest request) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
         boolean bypass = shouldBypassCache(request);
-        String cacheKey = "Products:GetById:" + id;
+        String cacheKey = format.cacheKey(ProductCacheKeys.byId(cache.currentGeneration(), id));
         if (!bypass) {
-            String cached = cache.get(cacheKey);
-            if (cached != null && !cached.isBlank()) {
-                Product prod = MAPPER.readValue(cached, Product.class);
-                return ResponseEntity.ok()
-                        .header("X-Cache-Status", "HIT")
+            byte[] cached = cache.getEncoded(cacheKey, format.codec(), Product.class);
+            if (cached != null) {
+                // Decoded only for X-Returned-Id, which lets clients check the entry is the product they asked for
+                Integer returnedId = format.decode(cached, Product.class).getId();
+                return ok(format, "HIT")
                         .header("X-Cache-Key", cacheKey)
                         .header("X-Requested-Id", Integer.toString(id))
-                        .header("X-Returned-Id", prod.getId() == null ? "" : prod.getId().toString())
-                        .body(prod);
+                        .header("X-Returned-Id", returnedId == null ? "" : returnedId.toString())
+                        .body(cached);
             }
         }
         Optional<Product> maybe = service.getProductById(id);
         if (maybe.isEmpty()) return ResponseEntity.notFound().build();
         Product product = maybe.get();
+        byte[] body = format.encode(product);
 
         if (!bypass) {
-            cache.set(cacheKey, MAPPER.writeValueAsString(product));
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "MISS")
+            cache.setEncodedAsync(cacheKey, format.codec(), body);
+            return ok(format, "MISS")
                     .header("X-Cache-Key", cacheKey)
                     .header("X-Requested-Id", Integer.toString(id))
                     .header("X-Returned-Id", product.getId() == null ? "" : product.getId().toString())
-                    .body(product);
+                    .body(body);
         } else {
-            return ResponseEntity.ok()
-                    .header("X-Cache-Status", "BYPASS")
+            return ok(format, "BYPASS")
                     .header("X-Requested-Id", Integer.toString(id))
                     .header("X-Returned-Id", product.getId() == null ? "" : product.getId().toString())
-                    .body(product);
+                    .body(body);
+        }
+    }
+
+    @PostMapping(produces = {ResponseFormat.JSON_VALUE, ResponseFormat.SMILE_VALUE, ResponseFormat.CBOR_VALUE})
+    @ApiResponse(responseCode = "201", content = @Content(schema = @Schema(implementation = Product.class)))
+    public ResponseEntity<byte[]> createProduct(@Valid @RequestBody Product product,
+                                                HttpServletRequest request) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        Product created = service.createProduct(product);
+        catalogChanged(created);
+        return ResponseEntity.created(URI.create("/api/products/" + created.getId()))
+                .contentType(format.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(format.encode(created));
+    }
+
+    @PutMapping(value = "/{id}", produces = {ResponseFormat.JSON_VALUE, ResponseFormat.SMILE_VALUE, ResponseFormat.CBOR_VALUE})
+    @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = Product.class)))
+    public ResponseEntity<byte[]> updateProduct(@PathVariable int id, @Valid @RequestBody Product product,
+                                                HttpServletRequest request) throws IOException {
+        ResponseFormat format = ResponseFormat.negotiate(request.getHeader(HttpHeaders.ACCEPT));
+        Optional<Product> updated = service.updateProduct(id, product);
+        if (updated.isEmpty()) return ResponseEntity.notFound().build();
+        catalogChanged(updated.get());
+        return ResponseEntity.ok()
+                .contentType(format.mediaType())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(format.encode(updated.get()));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteProduct(@PathVariable int id) throws IOException {
+        if (!service.deleteProduct(id)) return ResponseEntity.notFound().build();
+        catalogChanged(null);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Moves the cache to a new catalog generation, so every list, count and search entry is missed from now on
+     * without scanning for keys, then writes the changed product straight into the new generation's GetById
+     * entries so the next read of it is a hit.
+     */
+    private void catalogChanged(Product changed) throws IOException {
+        long generation = cache.bumpGeneration();
+        if (changed != null) {
+            for (ResponseFormat f : ResponseFormat.values()) {
+                String key = f.cacheKey(ProductCacheKeys.byId(generation, changed.getId()));
+                cache.setEncodedAsync(key, f.codec(), f.encode(changed));
+            }
         }
+        events.publishEvent(new CatalogChangedEvent(this, generation));
     }
 }
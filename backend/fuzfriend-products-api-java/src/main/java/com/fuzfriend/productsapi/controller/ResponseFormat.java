@@ -0,0 +1,67 @@
+package com.fuzfriend.productsapi.controller;
+
+import com.fuzfriend.productsapi.service.CacheCodec;
+import com.fuzfriend.productsapi.service.CacheCodecs;
+import com.fuzfriend.productsapi.service.ProductCacheKeys;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+
+/** Wire formats the products endpoints can produce, each cached under its own key. */
+enum ResponseFormat {
+    JSON(MediaType.APPLICATION_JSON, CacheCodecs.JSON),
+    SMILE(new MediaType("application", "x-jackson-smile"), CacheCodecs.SMILE),
+    CBOR(new MediaType("application", "cbor"), CacheCodecs.CBOR);
+
+    static final String JSON_VALUE = MediaType.APPLICATION_JSON_VALUE;
+    static final String SMILE_VALUE = "application/x-jackson-smile";
+    static final String CBOR_VALUE = "application/cbor";
+
+    private final MediaType mediaType;
+    private final CacheCodec codec;
+
+    ResponseFormat(MediaType mediaType, CacheCodec codec) {
+        this.mediaType = mediaType;
+        this.codec = codec;
+    }
+
+    MediaType mediaType() { return mediaType; }
+
+    CacheCodec codec() { return codec; }
+
+    String cacheKey(String baseKey) {
+        return ProductCacheKeys.withFormat(baseKey, codec);
+    }
+
+    byte[] encode(Object value) throws IOException {
+        return codec.encode(value);
+    }
+
+    <T> T decode(byte[] body, Class<T> type) throws IOException {
+        return codec.decode(body, type);
+    }
+
+    /** Picks the highest-quality acceptable format, falling back to JSON for missing or unsupported Accept headers. */
+    static ResponseFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) return JSON;
+        List<MediaType> requested;
+        try {
+            requested = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        List<MediaType> byQuality = requested.stream()
+                .sorted(Comparator.comparingDouble(MediaType::getQualityValue).reversed())
+                .toList();
+        for (MediaType type : byQuality) {
+            if (type.getQualityValue() <= 0) continue;
+            for (ResponseFormat format : values()) {
+                if (type.includes(format.mediaType)) return format;
+            }
+        }
+        return JSON;
+    }
+}
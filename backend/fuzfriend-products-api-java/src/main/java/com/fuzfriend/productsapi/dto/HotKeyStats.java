@@ -0,0 +1,26 @@
+package com.fuzfriend.productsapi.dto;
+
+import java.time.Instant;
+
+public class HotKeyStats {
+    private final String key;
+    private final long estimatedFrequency;
+    private final long lookups;
+    private final long localHits;
+    private final Instant promotedAt;
+
+    public HotKeyStats(String key, long estimatedFrequency, long lookups, long localHits, Instant promotedAt) {
+        this.key = key;
+        this.estimatedFrequency = estimatedFrequency;
+        this.lookups = lookups;
+        this.localHits = localHits;
+        this.promotedAt = promotedAt;
+    }
+
+    public String getKey() { return key; }
+    public long getEstimatedFrequency() { return estimatedFrequency; }
+    public long getLookups() { return lookups; }
+    public long getLocalHits() { return localHits; }
+    public double getLocalHitRate() { return lookups == 0 ? 0.0 : (double) localHits / lookups; }
+    public Instant getPromotedAt() { return promotedAt; }
+}
@@ -1,6 +1,7 @@
 package com.fuzfriend.productsapi.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.Fetch;
 import org.hibernate.annotations.FetchMode;
 import jakarta.validation.constraints.NotBlank;
@@ -41,7 +42,8 @@ public class Product {
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "product_image_urls", joinColumns = @JoinColumn(name = "product_id"))
     @Column(name = "image_url")
-    @Fetch(FetchMode.SUBSELECT)
+    @Fetch(FetchMode.SELECT)
+    @BatchSize(size = 100)
     private List<String> imageUrls = new ArrayList<>();
 
     public Integer getId() { return id; }
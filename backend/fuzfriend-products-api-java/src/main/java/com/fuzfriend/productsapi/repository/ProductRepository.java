@@ -2,6 +2,12 @@ package com.fuzfriend.productsapi.repository;
 
 import com.fuzfriend.productsapi.model.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Integer> {
+    /** id, category, brand, color, size, onPromotion, rating, price for every product. */
+    @Query("select p.id, p.category, p.brand, p.color, p.size, p.onPromotion, p.rating, p.price from Product p")
+    List<Object[]> findFacetRows();
 }
@@ -3,6 +3,7 @@ package com.fuzfriend.productsapi.seed;
 import com.fuzfriend.productsapi.model.Product;
 import com.fuzfriend.productsapi.repository.ProductRepository;
 import com.github.javafaker.Faker;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
 import org.springframework.context.annotation.Profile;
@@ -16,10 +17,14 @@ import java.util.*;
 @Profile("!test")
 public class DataSeeder implements ApplicationRunner {
 
+    private static final int BATCH_SIZE = 1000;
+
     private final ProductRepository repository;
+    private final int productCount;
 
-    public DataSeeder(ProductRepository repository) {
+    public DataSeeder(ProductRepository repository, @Value("${app.seed.product-count:1000}") int productCount) {
         this.repository = repository;
+        this.productCount = productCount;
     }
 
     @Override
@@ -81,7 +86,7 @@ public class DataSeeder implements ApplicationRunner {
 
         Faker faker = new Faker();
         List<Product> products = new ArrayList<>();
-        for (int i = 0; i < 1000; i++) {
+        for (int i = 0; i < productCount; i++) {
             Product p = new Product();
             p.setTitle(faker.commerce().productName());
             p.setDescription(faker.lorem().sentence(12));
@@ -98,6 +103,10 @@ public class DataSeeder implements ApplicationRunner {
             });
             p.setImageUrls(Arrays.asList(imgs));
             products.add(p);
+            if (products.size() == BATCH_SIZE) {
+                repository.saveAll(products);
+                products.clear();
+            }
         }
         repository.saveAll(products);
     }
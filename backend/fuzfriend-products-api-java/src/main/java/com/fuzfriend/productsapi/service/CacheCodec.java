@@ -0,0 +1,18 @@
+package com.fuzfriend.productsapi.service;
+
+import java.io.IOException;
+
+/**
+ * Serialises cache values to bytes. Each codec has a stable id that is written into the
+ * {@link CacheEnvelope} header, so an entry can be read back, or transcoded, whichever codec
+ * wrote it.
+ */
+public interface CacheCodec {
+    byte id();
+
+    String name();
+
+    byte[] encode(Object value) throws IOException;
+
+    <T> T decode(byte[] data, Class<T> type) throws IOException;
+}
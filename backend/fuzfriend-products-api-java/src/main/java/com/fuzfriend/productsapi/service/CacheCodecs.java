@@ -0,0 +1,32 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.util.List;
+
+/** Registry of the codecs a cache entry may have been written with. Ids must never be reused. */
+public final class CacheCodecs {
+    public static final CacheCodec JSON = new JacksonCacheCodec((byte) 1, "json", new JsonFactory());
+    public static final CacheCodec SMILE = new JacksonCacheCodec((byte) 2, "smile", new SmileFactory());
+    public static final CacheCodec CBOR = new JacksonCacheCodec((byte) 3, "cbor", new CBORFactory());
+
+    private static final List<CacheCodec> ALL = List.of(JSON, SMILE, CBOR);
+
+    private CacheCodecs() {}
+
+    public static CacheCodec forId(byte id) {
+        for (CacheCodec codec : ALL) {
+            if (codec.id() == id) return codec;
+        }
+        return null;
+    }
+
+    public static CacheCodec forName(String name) {
+        for (CacheCodec codec : ALL) {
+            if (codec.name().equalsIgnoreCase(name)) return codec;
+        }
+        throw new IllegalArgumentException("Unknown cache codec: " + name);
+    }
+}
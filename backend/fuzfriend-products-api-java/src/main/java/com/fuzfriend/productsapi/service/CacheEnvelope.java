@@ -0,0 +1,72 @@
+package com.fuzfriend.productsapi.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Binary layout of a cached value: {@code MAGIC, VERSION, codec id, flags} followed by the body,
+ * which is Deflate-compressed when {@link #FLAG_DEFLATE} is set.
+ */
+public final class CacheEnvelope {
+    static final byte MAGIC = (byte) 0xFB;
+    static final byte VERSION = 1;
+    static final int HEADER_LENGTH = 4;
+    static final byte FLAG_DEFLATE = 0x01;
+
+    private CacheEnvelope() {}
+
+    public static byte[] wrap(CacheCodec codec, byte[] body, int compressionThreshold) throws IOException {
+        byte flags = 0;
+        if (compressionThreshold > 0 && body.length >= compressionThreshold) {
+            byte[] compressed = deflate(body);
+            if (compressed.length < body.length) {
+                body = compressed;
+                flags |= FLAG_DEFLATE;
+            }
+        }
+        byte[] out = new byte[HEADER_LENGTH + body.length];
+        out[0] = MAGIC;
+        out[1] = VERSION;
+        out[2] = codec.id();
+        out[3] = flags;
+        System.arraycopy(body, 0, out, HEADER_LENGTH, body.length);
+        return out;
+    }
+
+    /**
+     * Returns the entry's body encoded with {@code target}. When the entry was written with that codec the
+     * stored bytes are returned as-is; otherwise the value is decoded as {@code type} and re-encoded.
+     * Returns null, a miss, when the entry has no header or a version or codec this build doesn't know.
+     */
+    public static byte[] unwrapAs(byte[] data, CacheCodec target, Class<?> type) throws IOException {
+        if (data.length < HEADER_LENGTH || data[0] != MAGIC || data[1] != VERSION) return null;
+        CacheCodec codec = CacheCodecs.forId(data[2]);
+        if (codec == null) return null;
+        byte[] body = Arrays.copyOfRange(data, HEADER_LENGTH, data.length);
+        if ((data[3] & FLAG_DEFLATE) != 0) body = inflate(body);
+        return codec == target ? body : target.encode(codec.decode(body, type));
+    }
+
+    private static byte[] deflate(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 2);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+            out.write(body);
+        } finally {
+            deflater.end();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] inflate(byte[] body) throws IOException {
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
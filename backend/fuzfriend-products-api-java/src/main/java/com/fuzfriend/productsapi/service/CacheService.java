@@ -1,40 +1,323 @@
 package com.fuzfriend.productsapi.service;
 
+import com.fuzfriend.productsapi.dto.HotKeyStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class CacheService {
+    private static final Logger log = LoggerFactory.getLogger(CacheService.class);
+    private static final String GENERATION_KEY = "Products:Generation";
+
     @Autowired(required = false)
     @Nullable
-    private StringRedisTemplate redisTemplate; // optional when Redis not configured
+    private RedisTemplate<String, byte[]> redisTemplate; // optional when Redis not configured
 
-    private final Map<String, String> memoryCache = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> memoryCache = new ConcurrentHashMap<>();
     private final Duration ttl;
+    private final int compressionThreshold;
+
+    // Write-behind: keys waiting to be written, with the latest value per key held in pendingWrites
+    // so repeated sets of the same key before a flush collapse into a single SET.
+    private final BlockingQueue<String> writeQueue;
+    private final Map<String, byte[]> pendingWrites = new ConcurrentHashMap<>();
+    private final int batchSize;
+    private final Counter droppedWrites;
+    private final Counter coalescedWrites;
+    private final Counter failedWrites;
+    private volatile boolean running;
+    @Nullable
+    private Thread writer;
+
+    // Hot keys get a short-lived copy in this process so they stop hammering a single Redis shard.
+    private final HotKeyTracker hotKeys;
+    private final Map<String, LocalCopy> localCopies = new ConcurrentHashMap<>();
+    private final long localTtlNanos;
 
-    public CacheService(@Value("${app.cache.ttl-seconds:120}") int ttlSeconds) {
+    // Catalog generation embedded in every product key; bumping it orphans all earlier entries at once.
+    // Other instances pick up a bump within generationRefreshNanos.
+    private final AtomicLong memoryGeneration = new AtomicLong();
+    private final long generationRefreshNanos;
+    private volatile GenerationSnapshot generation;
+    // Highest generation this instance has read or bumped to, so a counter that went back can be moved past it.
+    private final AtomicLong lastGeneration = new AtomicLong();
+
+    public CacheService(@Value("${app.cache.ttl-seconds:3600}") int ttlSeconds,
+                        @Value("${app.cache.compression-threshold-bytes:1024}") int compressionThreshold,
+                        @Value("${app.cache.write-behind.queue-capacity:10000}") int queueCapacity,
+                        @Value("${app.cache.write-behind.batch-size:128}") int batchSize,
+                        @Value("${app.cache.hot-keys.threshold:200}") long hotKeyThreshold,
+                        @Value("${app.cache.hot-keys.window-seconds:10}") int hotKeyWindowSeconds,
+                        @Value("${app.cache.hot-keys.max-keys:64}") int maxHotKeys,
+                        @Value("${app.cache.hot-keys.local-ttl-seconds:2}") int localTtlSeconds,
+                        @Value("${app.cache.generation-refresh-ms:1000}") long generationRefreshMs,
+                        MeterRegistry meterRegistry) {
         this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.compressionThreshold = compressionThreshold;
+        this.writeQueue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        Gauge.builder("cache.write.queue.depth", writeQueue, BlockingQueue::size)
+                .description("Cache writes waiting for the background writer")
+                .register(meterRegistry);
+        this.droppedWrites = Counter.builder("cache.write.dropped")
+                .description("Cache writes dropped because the write-behind queue was full")
+                .register(meterRegistry);
+        this.coalescedWrites = Counter.builder("cache.write.coalesced")
+                .description("Cache writes merged into an already queued write for the same key")
+                .register(meterRegistry);
+        this.failedWrites = Counter.builder("cache.write.failed")
+                .description("Cache writes lost because a pipelined batch failed")
+                .register(meterRegistry);
+        this.hotKeys = new HotKeyTracker(4096, hotKeyThreshold, maxHotKeys,
+                TimeUnit.SECONDS.toNanos(hotKeyWindowSeconds), localCopies::remove, this::sweepLocalCopies);
+        this.localTtlNanos = TimeUnit.SECONDS.toNanos(localTtlSeconds);
+        Gauge.builder("cache.hot.keys", hotKeys, HotKeyTracker::size)
+                .description("Keys currently promoted to a local copy")
+                .register(meterRegistry);
+        this.generationRefreshNanos = TimeUnit.MILLISECONDS.toNanos(generationRefreshMs);
     }
 
-    public String get(String key) {
-        if (redisTemplate != null) {
-            return redisTemplate.opsForValue().get(key);
+    @PostConstruct
+    void startWriter() {
+        if (redisTemplate == null) return;
+        running = true;
+        writer = Thread.ofPlatform().daemon().name("cache-write-behind").start(this::drainLoop);
+    }
+
+    @PreDestroy
+    void stopWriter() throws InterruptedException {
+        running = false;
+        Thread t = writer;
+        if (t != null) {
+            t.interrupt();
+            t.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Returns the cached value as bytes in the given codec's format, ready to be written to a response
+     * without deserialising it. Returns null on a miss or when the entry can't be read.
+     */
+    public byte[] getEncoded(String key, CacheCodec target, Class<?> type) {
+        byte[] data = getBytes(key);
+        if (data == null || data.length == 0) return null;
+        try {
+            return CacheEnvelope.unwrapAs(data, target, type);
+        } catch (IOException e) {
+            log.debug("Ignoring undecodable cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Writes a value that has already been encoded with {@code bodyCodec}, waiting for the write to complete. */
+    public void setEncoded(String key, CacheCodec bodyCodec, byte[] body) {
+        try {
+            setBytes(key, CacheEnvelope.wrap(bodyCodec, body, compressionThreshold));
+        } catch (IOException e) {
+            log.warn("Skipping cache write for {}: {}", key, e.getMessage());
         }
-        return memoryCache.get(key);
     }
 
-    public void set(String key, String value) {
+    /**
+     * Queues a value that has already been encoded with {@code bodyCodec} and returns immediately.
+     * Never blocks the caller: if the queue is full the write is dropped and counted,
+     * which only costs a future cache miss.
+     */
+    public void setEncodedAsync(String key, CacheCodec bodyCodec, byte[] body) {
+        try {
+            setBytesAsync(key, CacheEnvelope.wrap(bodyCodec, body, compressionThreshold));
+        } catch (IOException e) {
+            log.warn("Skipping cache write for {}: {}", key, e.getMessage());
+        }
+    }
+
+    private byte[] getBytes(String key) {
+        boolean hot = hotKeys.recordAccess(key);
+        if (redisTemplate == null) {
+            return memoryCache.get(key);
+        }
+        if (hot) {
+            LocalCopy local = localCopies.get(key);
+            if (local != null && local.expiresAt() - System.nanoTime() > 0) {
+                hotKeys.recordLocalHit(key);
+                return local.value();
+            }
+        }
+        byte[] value = redisTemplate.opsForValue().get(key);
+        if (hot && value != null) putLocalCopy(key, value);
+        return value;
+    }
+
+    private void setBytes(String key, byte[] value) {
         if (redisTemplate != null) {
+            refreshLocalCopy(key, value);
             redisTemplate.opsForValue().set(key, value, ttl);
         } else {
             memoryCache.put(key, value);
         }
     }
+
+    private void setBytesAsync(String key, byte[] value) {
+        if (redisTemplate == null) {
+            memoryCache.put(key, value);
+            return;
+        }
+        refreshLocalCopy(key, value);
+        // Decide under the map's per-key lock, so a key is in pendingWrites only while it is also queued.
+        pendingWrites.compute(key, (k, queued) -> {
+            if (queued != null) {
+                coalescedWrites.increment();
+                return value;
+            }
+            if (writeQueue.offer(k)) return value;
+            droppedWrites.increment();
+            return null;
+        });
+    }
+
+    public boolean exists(String key) {
+        if (redisTemplate != null) {
+            return Boolean.TRUE.equals(redisTemplate.hasKey(key)) || pendingWrites.containsKey(key);
+        }
+        return memoryCache.containsKey(key);
+    }
+
+    /** The catalog generation to build product cache keys with. Read from Redis at most once per refresh interval. */
+    public long currentGeneration() {
+        if (redisTemplate == null) return memoryGeneration.get();
+        GenerationSnapshot snapshot = generation;
+        if (snapshot != null && System.nanoTime() - snapshot.readAt() < generationRefreshNanos) {
+            return snapshot.value();
+        }
+        byte[] raw = redisTemplate.opsForValue().get(GENERATION_KEY);
+        long value = raw == null ? 0 : Long.parseLong(new String(raw, StandardCharsets.US_ASCII));
+        long last = lastGeneration.get();
+        if (value < last) value = reseedGeneration(value, last + 1);
+        lastGeneration.accumulateAndGet(value, Math::max);
+        generation = new GenerationSnapshot(value, System.nanoTime());
+        return value;
+    }
+
+    /**
+     * Moves the catalog to a new generation so every product key cached so far is no longer looked up.
+     * Orphaned Redis entries are left to expire by TTL; the in-memory cache is simply cleared.
+     */
+    public long bumpGeneration() {
+        localCopies.clear();
+        if (redisTemplate == null) {
+            memoryCache.clear();
+            return memoryGeneration.incrementAndGet();
+        }
+        Long value = redisTemplate.opsForValue().increment(GENERATION_KEY);
+        long next = value == null ? 0 : value;
+        long last = lastGeneration.get();
+        if (next <= last) next = reseedGeneration(next, last + 1);
+        lastGeneration.accumulateAndGet(next, Math::max);
+        generation = new GenerationSnapshot(next, System.nanoTime());
+        return next;
+    }
+
+    /**
+     * A Redis restart without persistence, FLUSHALL or eviction resets the counter. Handing out generations
+     * again would make entries cached under them reachable again, so the counter is moved to at least
+     * {@code target}. INCRBY keeps concurrent re-seeds by other instances from undoing each other.
+     */
+    private long reseedGeneration(long value, long target) {
+        Long reseeded = redisTemplate.opsForValue().increment(GENERATION_KEY, target - value);
+        long next = reseeded == null ? target : reseeded;
+        log.warn("Catalog generation went back to {} after {} had been seen; re-seeded it to {}",
+                value, target - 1, next);
+        return next;
+    }
+
+    public List<HotKeyStats> getHotKeys() {
+        return hotKeys.snapshot();
+    }
+
+    private void refreshLocalCopy(String key, byte[] value) {
+        if (hotKeys.isHot(key)) putLocalCopy(key, value);
+    }
+
+    /**
+     * The key can be demoted after the caller saw it hot, and the demotion's removal may already have run.
+     * The tracker un-promotes a key before removing its copy, so checking again after the put is enough.
+     */
+    private void putLocalCopy(String key, byte[] value) {
+        localCopies.put(key, new LocalCopy(value, System.nanoTime() + localTtlNanos));
+        if (!hotKeys.isHot(key)) localCopies.remove(key);
+    }
+
+    private void sweepLocalCopies() {
+        long now = System.nanoTime();
+        localCopies.values().removeIf(copy -> copy.expiresAt() - now <= 0);
+    }
+
+    private void drainLoop() {
+        List<String> keys = new ArrayList<>(batchSize);
+        while (running || !writeQueue.isEmpty()) {
+            try {
+                String first = writeQueue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                keys.add(first);
+                writeQueue.drainTo(keys, batchSize - 1);
+                flush(keys);
+            } catch (InterruptedException e) {
+                if (!running) {
+                    writeQueue.drainTo(keys);
+                    flush(keys);
+                    return;
+                }
+            } finally {
+                keys.clear();
+            }
+        }
+    }
+
+    private void flush(List<String> keys) {
+        Map<String, byte[]> batch = new LinkedHashMap<>(keys.size());
+        for (String key : keys) {
+            byte[] value = pendingWrites.remove(key);
+            if (value != null) batch.put(key, value);
+        }
+        if (batch.isEmpty() || redisTemplate == null) return;
+        long ttlSeconds = ttl.toSeconds();
+        try {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                batch.forEach((k, v) -> connection.stringCommands()
+                        .setEx(k.getBytes(StandardCharsets.UTF_8), ttlSeconds, v));
+                return null;
+            });
+        } catch (RuntimeException e) {
+            failedWrites.increment(batch.size());
+            log.warn("Write-behind flush of {} cache entries failed: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    private record LocalCopy(byte[] value, long expiresAt) {}
+
+    private record GenerationSnapshot(long value, long readAt) {}
 }
@@ -0,0 +1,146 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays the most frequent logged queries into the cache in the background, on startup and after
+ * catalog changes. Database load is capped at {@code app.cache.warmup.queries-per-second}. With the
+ * readiness gate enabled this bean reports OUT_OF_SERVICE until the target coverage has been warmed.
+ */
+@Component
+public class CacheWarmer implements HealthIndicator {
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    private final ProductService service;
+    private final CacheService cache;
+    private final QueryLog queryLog;
+    private final boolean enabled;
+    private final int topN;
+    private final long intervalNanos;
+    private final double targetCoverage;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean rerun;
+    private volatile boolean gateOpen;
+    private volatile int target;
+    private volatile int processed;
+    private volatile int loaded;
+
+    public CacheWarmer(ProductService service, CacheService cache, QueryLog queryLog,
+                       @Value("${app.cache.warmup.enabled:true}") boolean enabled,
+                       @Value("${app.cache.warmup.top-n:200}") int topN,
+                       @Value("${app.cache.warmup.queries-per-second:5}") double queriesPerSecond,
+                       @Value("${app.cache.warmup.readiness-gate:false}") boolean readinessGate,
+                       @Value("${app.cache.warmup.target-coverage:0.8}") double targetCoverage) {
+        this.service = service;
+        this.cache = cache;
+        this.queryLog = queryLog;
+        this.enabled = enabled;
+        this.topN = topN;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / Math.max(0.01, queriesPerSecond));
+        this.targetCoverage = targetCoverage;
+        this.gateOpen = !readinessGate || !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        if (enabled) trigger();
+    }
+
+    @EventListener(CatalogChangedEvent.class)
+    public void onCatalogChanged() {
+        if (enabled) trigger();
+    }
+
+    /** Starts a warm-up run, or schedules another pass if one is already in progress. */
+    public void trigger() {
+        rerun = true;
+        if (running.compareAndSet(false, true)) {
+            Thread.ofVirtual().name("cache-warmup").start(this::runLoop);
+        }
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = gateOpen ? Health.up() : Health.outOfService();
+        return builder
+                .withDetail("running", running.get())
+                .withDetail("target", target)
+                .withDetail("processed", processed)
+                .withDetail("loaded", loaded)
+                .build();
+    }
+
+    private void runLoop() {
+        try {
+            do {
+                rerun = false;
+                warmUp();
+            } while (rerun);
+        } finally {
+            running.set(false);
+        }
+        if (rerun) trigger();
+    }
+
+    private void warmUp() {
+        List<QueryLog.Entry> entries = queryLog.top(topN);
+        target = entries.size();
+        processed = 0;
+        loaded = 0;
+        long started = System.nanoTime();
+        long next = started;
+        for (QueryLog.Entry entry : entries) {
+            if (rerun) break; // the catalog changed again; restart against the new generation
+            try {
+                CacheCodec codec = CacheCodecs.forName(entry.getCodec());
+                String key = ProductCacheKeys.withFormat(baseKey(cache.currentGeneration(), entry), codec);
+                if (!cache.exists(key)) {
+                    long wait = next - System.nanoTime();
+                    if (wait > 0) LockSupport.parkNanos(wait);
+                    next = Math.max(next, System.nanoTime()) + intervalNanos;
+                    cache.setEncoded(key, codec, codec.encode(load(entry)));
+                    loaded++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Skipping warm-up of logged query: {}", e.getMessage());
+            }
+            processed++;
+            if (processed >= target * targetCoverage) gateOpen = true;
+        }
+        if (rerun) return;
+        gateOpen = true;
+        log.info("Cache warm-up loaded {} of {} logged queries in {} ms", loaded, target,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private static String baseKey(long generation, QueryLog.Entry entry) {
+        ProductQueryDto q = entry.getQuery();
+        return switch (entry.getKind()) {
+            case PAGE -> ProductCacheKeys.page(generation, q.getPage(), q.getPageSize());
+            case COUNT -> ProductCacheKeys.count(generation);
+            case SEARCH -> ProductCacheKeys.search(generation, q);
+        };
+    }
+
+    private Object load(QueryLog.Entry entry) {
+        return switch (entry.getKind()) {
+            case PAGE, SEARCH -> service.getProducts(entry.getQuery());
+            case COUNT -> service.getProducts(new ProductQueryDto()).getTotalCount();
+        };
+    }
+}
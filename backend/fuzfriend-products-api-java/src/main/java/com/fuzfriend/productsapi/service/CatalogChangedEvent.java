@@ -0,0 +1,15 @@
+package com.fuzfriend.productsapi.service;
+
+import org.springframework.context.ApplicationEvent;
+
+/** Published after products are created, updated or deleted and the catalog moved to {@code generation}. */
+public class CatalogChangedEvent extends ApplicationEvent {
+    private final long generation;
+
+    public CatalogChangedEvent(Object source, long generation) {
+        super(source);
+        this.generation = generation;
+    }
+
+    public long getGeneration() { return generation; }
+}
@@ -0,0 +1,276 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.FilterOptions;
+import com.fuzfriend.productsapi.model.Product;
+import com.fuzfriend.productsapi.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory equivalent of a facet summary table: product counts keyed by
+ * (category, brand, color, size, onPromotion, rating floor), each with the multiset of prices so
+ * price-range filters and min/max stay exact. Built from the database once the application is ready,
+ * then kept current by {@link FacetSummaryListener} as products are inserted, updated and deleted.
+ * Bulk JPQL/SQL updates bypass the listener, so the summary is also rebuilt periodically.
+ * <p>
+ * The facet row of every product is kept by id, so a change replaces whatever the summary currently
+ * holds for that product. Applying a change twice is harmless, which lets a rebuild replay every
+ * change that committed while it was reading, whether or not the read already saw it.
+ * <p>
+ * Other instances write to the same database but their changes never reach this listener. The summary
+ * therefore records the catalog generation it is current for: its build's reading, advanced by this
+ * instance's own bumps. Once {@link CacheService#currentGeneration()} differs from that, in either
+ * direction, searches go to the database until a rebuild catches up, so counts cached under the new
+ * generation are never stale.
+ */
+@Component
+public class FacetSummary {
+    private static final Logger log = LoggerFactory.getLogger(FacetSummary.class);
+
+    public record Row(String category, String brand, String color, String size, boolean onPromotion,
+                      int ratingFloor, BigDecimal price) {
+        // products.price is NUMERIC(12, 2): listeners see the price as sent, the database rounds it.
+        private static final int PRICE_SCALE = 2;
+
+        public static Row of(Product p) {
+            BigDecimal price = p.getPrice() == null ? null : p.getPrice().setScale(PRICE_SCALE, RoundingMode.HALF_UP);
+            return new Row(p.getCategory(), p.getBrand(), p.getColor(), p.getSize(), p.isOnPromotion(),
+                    (int) Math.floor(p.getRating()), price);
+        }
+
+        Cell cell() {
+            return new Cell(category, brand, color, size, onPromotion, ratingFloor);
+        }
+    }
+
+    public record Result(long totalCount, FilterOptions filters) {}
+
+    private record Cell(String category, String brand, String color, String size, boolean onPromotion,
+                        int ratingFloor) {}
+
+    private static final class Bucket {
+        long count;
+        final TreeMap<BigDecimal, Integer> prices = new TreeMap<>();
+
+        long countInRange(BigDecimal min, BigDecimal max) {
+            if (min == null && max == null) return count;
+            NavigableMap<BigDecimal, Integer> range = prices;
+            if (min != null) range = range.tailMap(min, true);
+            if (max != null) range = range.headMap(max, true);
+            long n = 0;
+            for (int c : range.values()) n += c;
+            return n;
+        }
+    }
+
+    private record Change(int id, Row row) {}
+
+    private final ProductRepository repository;
+    private final CacheService cache;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<Integer, Row> rows = new HashMap<>();
+    private Map<Cell, Bucket> cells = new HashMap<>();
+    // Changes seen since the current build started reading; null when no build is running.
+    private List<Change> buildLog = new ArrayList<>();
+    private volatile boolean ready;
+    // Catalog generation whose changes are all reflected in the summary; written under the write lock.
+    private volatile long generation = -1;
+
+    public FacetSummary(ProductRepository repository, CacheService cache) {
+        this.repository = repository;
+        this.cache = cache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.facets.summary.rebuild-interval-ms:600000}",
+            fixedDelayString = "${app.facets.summary.rebuild-interval-ms:600000}")
+    public synchronized void rebuild() {
+        lock.writeLock().lock();
+        try {
+            if (buildLog == null) buildLog = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Map<Integer, Row> rebuiltRows = new HashMap<>();
+        Map<Cell, Bucket> rebuilt = new HashMap<>();
+        long seen;
+        try {
+            // Read before the rows: a writer commits before it bumps, so the read sees every change up to here.
+            seen = cache.currentGeneration();
+            for (Object[] r : repository.findFacetRows()) {
+                Row row = new Row((String) r[1], (String) r[2], (String) r[3], (String) r[4], (Boolean) r[5],
+                        (int) Math.floor((Double) r[6]), (BigDecimal) r[7]);
+                put(rebuiltRows, rebuilt, (Integer) r[0], row);
+            }
+        } catch (RuntimeException e) {
+            lock.writeLock().lock();
+            try {
+                if (ready) buildLog = null; // the live summary is still being kept current
+            } finally {
+                lock.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int replayed;
+        lock.writeLock().lock();
+        try {
+            replayed = buildLog.size();
+            for (Change c : buildLog) put(rebuiltRows, rebuilt, c.id(), c.row());
+            rows = rebuiltRows;
+            cells = rebuilt;
+            buildLog = null;
+            generation = seen;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Facet summary built from {} products into {} cells ({} changes replayed)",
+                rebuiltRows.size(), rebuilt.size(), replayed);
+    }
+
+    /** Rebuilds once the catalog is at a generation other than the one the summary was built for. */
+    @Scheduled(fixedDelayString = "${app.facets.summary.generation-check-ms:1000}")
+    public void followGeneration() {
+        if (ready && generation != cache.currentGeneration()) rebuild();
+    }
+
+    /**
+     * This instance bumped the generation after its change was applied. When the bump directly follows the
+     * summary's generation no other instance changed anything in between, so no rebuild is needed.
+     */
+    @EventListener(CatalogChangedEvent.class)
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (ready && event.getGeneration() == generation + 1) generation = event.getGeneration();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Applies one committed change to a product; {@code row} is null when the product was deleted. */
+    public void apply(int id, Row row) {
+        lock.writeLock().lock();
+        try {
+            if (buildLog != null) buildLog.add(new Change(id, row));
+            if (ready) put(rows, cells, id, row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Answers the count and facet part of a search from the summary. Returns empty when the summary
+     * isn't built yet, isn't at the current catalog generation, or when {@code minRating} is fractional,
+     * which rating floors can't represent.
+     */
+    public Optional<Result> summarize(List<String> categories, List<String> brands, List<String> colours,
+                                      List<String> sizes, BigDecimal minPrice, BigDecimal maxPrice,
+                                      Double minRating, Boolean onPromotion) {
+        if (!ready || generation != cache.currentGeneration()) return Optional.empty();
+        if (minRating != null && minRating != Math.floor(minRating)) return Optional.empty();
+
+        Set<String> cats = asSet(categories);
+        Set<String> brs = asSet(brands);
+        Set<String> cols = asSet(colours);
+        Set<String> szs = asSet(sizes);
+
+        Map<String, Integer> categoryCounts = new HashMap<>();
+        Map<String, Integer> brandCounts = new HashMap<>();
+        Map<String, Integer> colourCounts = new HashMap<>();
+        Map<String, Integer> sizeCounts = new HashMap<>();
+        SortedSet<Integer> ratings = new TreeSet<>();
+        long total = 0;
+        boolean hasPromotions = false;
+        BigDecimal priceMin = null;
+        BigDecimal priceMax = null;
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<Cell, Bucket> e : cells.entrySet()) {
+                Cell c = e.getKey();
+                if (minRating != null && c.ratingFloor() < minRating) continue;
+                if (onPromotion != null && c.onPromotion() != onPromotion) continue;
+                long n = e.getValue().countInRange(minPrice, maxPrice);
+                if (n == 0) continue;
+
+                boolean mc = matches(cats, c.category());
+                boolean mb = matches(brs, c.brand());
+                boolean mcol = matches(cols, c.color());
+                boolean ms = matches(szs, c.size());
+                if (mb && mcol && ms && c.category() != null) categoryCounts.merge(c.category(), (int) n, Integer::sum);
+                if (mc && mcol && ms && c.brand() != null) brandCounts.merge(c.brand(), (int) n, Integer::sum);
+                if (mc && mb && ms && c.color() != null) colourCounts.merge(c.color(), (int) n, Integer::sum);
+                if (mc && mb && mcol && c.size() != null) sizeCounts.merge(c.size(), (int) n, Integer::sum);
+                if (!(mc && mb && mcol && ms)) continue;
+
+                total += n;
+                ratings.add(c.ratingFloor());
+                hasPromotions |= c.onPromotion();
+                NavigableMap<BigDecimal, Integer> prices = e.getValue().prices;
+                if (minPrice != null) prices = prices.tailMap(minPrice, true);
+                if (maxPrice != null) prices = prices.headMap(maxPrice, true);
+                if (!prices.isEmpty()) {
+                    if (priceMin == null || prices.firstKey().compareTo(priceMin) < 0) priceMin = prices.firstKey();
+                    if (priceMax == null || prices.lastKey().compareTo(priceMax) > 0) priceMax = prices.lastKey();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        FilterOptions filters = new FilterOptions();
+        filters.setCategoryCounts(categoryCounts);
+        filters.setBrandCounts(brandCounts);
+        filters.setColourCounts(colourCounts);
+        filters.setSizeCounts(sizeCounts);
+        filters.setCategories(categoryCounts.keySet().stream().sorted().toList());
+        filters.setBrands(brandCounts.keySet().stream().sorted().toList());
+        filters.setColours(colourCounts.keySet().stream().sorted().toList());
+        filters.setSizes(sizeCounts.keySet().stream().sorted().toList());
+        filters.setMinPrice(priceMin == null ? BigDecimal.ZERO : priceMin);
+        filters.setMaxPrice(priceMax == null ? BigDecimal.ZERO : priceMax);
+        filters.setRatings(new ArrayList<>(ratings));
+        filters.setHasPromotions(hasPromotions);
+        return Optional.of(new Result(total, filters));
+    }
+
+    private static void put(Map<Integer, Row> rows, Map<Cell, Bucket> cells, int id, Row row) {
+        Row previous = row == null ? rows.remove(id) : rows.put(id, row);
+        if (previous != null) remove(cells, previous);
+        if (row != null) add(cells, row);
+    }
+
+    private static void add(Map<Cell, Bucket> cells, Row row) {
+        Bucket b = cells.computeIfAbsent(row.cell(), k -> new Bucket());
+        b.count++;
+        if (row.price() != null) b.prices.merge(row.price(), 1, Integer::sum);
+    }
+
+    private static void remove(Map<Cell, Bucket> cells, Row row) {
+        Bucket b = cells.get(row.cell());
+        if (b == null) return;
+        if (row.price() != null) b.prices.computeIfPresent(row.price(), (k, c) -> c > 1 ? c - 1 : null);
+        if (--b.count <= 0) cells.remove(row.cell());
+    }
+
+    private static Set<String> asSet(List<String> values) {
+        return values == null || values.isEmpty() ? null : new HashSet<>(values);
+    }
+
+    private static boolean matches(Set<String> allowed, String value) {
+        return allowed == null || (value != null && allowed.contains(value));
+    }
+}
@@ -0,0 +1,50 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.model.Product;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * JPA callbacks that feed product changes into the {@link FacetSummary}. Registered for {@link Product}
+ * in {@code META-INF/orm.xml} so the entity doesn't depend on the service layer. Changes are applied
+ * after commit so rolled-back transactions leave the summary untouched.
+ */
+@Component
+public class FacetSummaryListener {
+    // Resolved lazily: Hibernate creates listeners while the EntityManagerFactory that FacetSummary
+    // depends on is still being built.
+    private final ObjectProvider<FacetSummary> summary;
+
+    public FacetSummaryListener(ObjectProvider<FacetSummary> summary) {
+        this.summary = summary;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onWrite(Product product) {
+        afterCommit(product.getId(), FacetSummary.Row.of(product));
+    }
+
+    @PostRemove
+    public void onDelete(Product product) {
+        afterCommit(product.getId(), null);
+    }
+
+    private void afterCommit(int id, FacetSummary.Row row) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            summary.getObject().apply(id, row);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                summary.getObject().apply(id, row);
+            }
+        });
+    }
+}
@@ -0,0 +1,196 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.HotKeyStats;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Approximate per-key access frequency backed by a count-min sketch. Counters are halved at the end of
+ * every window so the estimate follows recent traffic; keys whose estimate crosses the threshold are
+ * promoted, and are demoted again once a decay leaves them below half of it. A key is no longer hot by the
+ * time {@code onDemote} runs for it, and {@code afterDecay} runs once at the end of every decay.
+ */
+public class HotKeyTracker {
+    private static final int DEPTH = 4;
+
+    private final int mask;
+    private final AtomicLongArray counters;
+    private final long threshold;
+    private final int maxHotKeys;
+    private final long windowNanos;
+    private final AtomicLong windowStart;
+    private final Consumer<String> onDemote;
+    private final Runnable afterDecay;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> hotKeys = new ConcurrentHashMap<>();
+
+    public HotKeyTracker(int width, long threshold, int maxHotKeys, long windowNanos, Consumer<String> onDemote,
+                         Runnable afterDecay) {
+        this(width, threshold, maxHotKeys, windowNanos, onDemote, afterDecay, System::nanoTime);
+    }
+
+    HotKeyTracker(int width, long threshold, int maxHotKeys, long windowNanos, Consumer<String> onDemote,
+                  Runnable afterDecay, LongSupplier nanoClock) {
+        int w = Integer.highestOneBit(Math.max(64, width));
+        this.mask = w - 1;
+        this.counters = new AtomicLongArray(DEPTH * w);
+        this.threshold = Math.max(1, threshold);
+        this.maxHotKeys = maxHotKeys;
+        this.windowNanos = windowNanos;
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+        this.onDemote = onDemote;
+        this.afterDecay = afterDecay;
+    }
+
+    /** Records one access and returns whether the key is currently promoted. */
+    public boolean recordAccess(String key) {
+        maybeDecay();
+        long h = hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, h)));
+        }
+        Entry entry = hotKeys.get(key);
+        if (entry == null && estimate >= threshold && hotKeys.size() < maxHotKeys) {
+            entry = hotKeys.computeIfAbsent(key, k -> new Entry(Instant.now()));
+        }
+        if (entry == null) return false;
+        entry.lookups.increment();
+        return true;
+    }
+
+    public void recordLocalHit(String key) {
+        Entry entry = hotKeys.get(key);
+        if (entry != null) entry.localHits.increment();
+    }
+
+    public boolean isHot(String key) {
+        return hotKeys.containsKey(key);
+    }
+
+    public int size() {
+        return hotKeys.size();
+    }
+
+    public List<HotKeyStats> snapshot() {
+        return hotKeys.entrySet().stream()
+                .map(e -> new HotKeyStats(e.getKey(), estimate(e.getKey()),
+                        e.getValue().lookups.sum(), e.getValue().localHits.sum(), e.getValue().promotedAt))
+                .sorted(Comparator.comparingLong(HotKeyStats::getEstimatedFrequency).reversed())
+                .toList();
+    }
+
+    private long estimate(String key) {
+        long h = hash64(key);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, h)));
+        }
+        return estimate;
+    }
+
+    private void maybeDecay() {
+        long start = windowStart.get();
+        long now = nanoClock.getAsLong();
+        if (now - start < windowNanos || !windowStart.compareAndSet(start, now)) return;
+        for (int i = 0; i < counters.length(); i++) {
+            counters.getAndUpdate(i, c -> c >>> 1);
+        }
+        long demoteBelow = threshold / 2;
+        for (String key : hotKeys.keySet()) {
+            if (estimate(key) < demoteBelow && hotKeys.remove(key) != null) onDemote.accept(key);
+        }
+        afterDecay.run();
+    }
+
+    /**
+     * Row indexes come from the two 32-bit halves of one 64-bit hash (h1 + row * h2), which keeps the rows
+     * independent enough for the sketch's error bound without hashing the key once per row.
+     */
+    private int index(int row, long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (mask + 1) + ((h1 + row * h2) & mask);
+    }
+
+    /** First 64 bits of MurmurHash3 x64_128 over the key's UTF-8 bytes. */
+    static long hash64(String key) {
+        byte[] data = key.getBytes(StandardCharsets.UTF_8);
+        final long c1 = 0x87c37b91114253d5L;
+        final long c2 = 0x4cf5ad432745937fL;
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = data.length / 16;
+        for (int i = 0; i < blocks; i++) {
+            long k1 = getLong(data, i * 16);
+            long k2 = getLong(data, i * 16 + 8);
+            h1 ^= mixK1(k1, c1, c2);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2, c1, c2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks * 16;
+        for (int i = data.length - 1; i >= tail; i--) {
+            int shift = ((i - tail) % 8) * 8;
+            if (i - tail >= 8) k2 |= (data[i] & 0xffL) << shift;
+            else k1 |= (data[i] & 0xffL) << shift;
+        }
+        if (k2 != 0) h2 ^= mixK2(k2, c1, c2);
+        if (k1 != 0) h1 ^= mixK1(k1, c1, c2);
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        return h1 + h2;
+    }
+
+    private static long mixK1(long k1, long c1, long c2) {
+        return Long.rotateLeft(k1 * c1, 31) * c2;
+    }
+
+    private static long mixK2(long k2, long c1, long c2) {
+        return Long.rotateLeft(k2 * c2, 33) * c1;
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 7; i >= 0; i--) v = (v << 8) | (b[off + i] & 0xffL);
+        return v;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static final class Entry {
+        final Instant promotedAt;
+        final LongAdder lookups = new LongAdder();
+        final LongAdder localHits = new LongAdder();
+
+        Entry(Instant promotedAt) {
+            this.promotedAt = promotedAt;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+
+import java.io.IOException;
+
+public class JacksonCacheCodec implements CacheCodec {
+    private final byte id;
+    private final String name;
+    private final ObjectMapper mapper;
+
+    public JacksonCacheCodec(byte id, String name, JsonFactory factory) {
+        this.id = id;
+        this.name = name;
+        this.mapper = new ObjectMapper(factory)
+                .setPropertyNamingStrategy(PropertyNamingStrategies.LOWER_CAMEL_CASE)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+
+    @Override
+    public byte id() { return id; }
+
+    @Override
+    public String name() { return name; }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return mapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] data, Class<T> type) throws IOException {
+        return mapper.readValue(data, type);
+    }
+}
@@ -0,0 +1,65 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Cache key layout for the products endpoints, shared by the controller and the cache warmer. Every key
+ * embeds the catalog generation, so bumping it invalidates all cached catalog data without a key scan.
+ */
+public final class ProductCacheKeys {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.LOWER_CAMEL_CASE)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private ProductCacheKeys() {}
+
+    public static String page(long generation, int page, int pageSize) {
+        return "Products:Get:gen=" + generation + ";page=" + page + ";pageSize=" + pageSize;
+    }
+
+    public static String count(long generation) {
+        return "Products:Count:gen=" + generation;
+    }
+
+    public static String byId(long generation, int id) {
+        return "Products:GetById:gen=" + generation + ";id=" + id;
+    }
+
+    public static String search(long generation, ProductQueryDto query) {
+        return "Products:Search:gen=" + generation + ":" + queryHash(query);
+    }
+
+    /** Stable hash of a query's JSON form; a null query hashes like an empty one. */
+    public static String queryHash(ProductQueryDto query) {
+        try {
+            return sha256(MAPPER.writeValueAsString(query == null ? new ProductQueryDto() : query));
+        } catch (JsonProcessingException e) {
+            return "ERR";
+        }
+    }
+
+    /** Entries are kept per response format; JSON keeps the unsuffixed key. */
+    public static String withFormat(String baseKey, CacheCodec codec) {
+        return codec == CacheCodecs.JSON ? baseKey : baseKey + ";fmt=" + codec.name();
+    }
+
+    private static String sha256(String input) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] hash = md.digest(input.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash).toUpperCase();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
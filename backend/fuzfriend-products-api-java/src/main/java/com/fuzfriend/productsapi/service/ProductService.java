@@ -18,12 +18,14 @@ import java.util.stream.Collectors;
 @Service
 public class ProductService {
     private final ProductRepository repository;
+    private final FacetSummary facetSummary;
 
     @PersistenceContext
     private EntityManager em;
 
-    public ProductService(ProductRepository repository) {
+    public ProductService(ProductRepository repository, FacetSummary facetSummary) {
         this.repository = repository;
+        this.facetSummary = facetSummary;
     }
 
     @Transactional(readOnly = true)
@@ -99,6 +101,27 @@ public class ProductService {
         };
         cq.orderBy(desc ? cb.desc(sortPath) : cb.asc(sortPath));
 
+        // Page
+        List<Product> products = em.createQuery(cq.select(root))
+                .setFirstResult((page - 1) * pageSize)
+                .setMaxResults(pageSize)
+                .getResultList();
+
+        ProductResponse resp = new ProductResponse();
+        resp.setProducts(products);
+
+        // Counts and facets come from the in-memory summary unless the query needs row-level predicates
+        boolean summarizable = (ids == null || ids.isEmpty())
+                && (query.getQuery() == null || query.getQuery().isBlank());
+        Optional<FacetSummary.Result> summary = summarizable
+                ? facetSummary.summarize(categories, brands, colours, sizes, minPrice, maxPrice, minRating, onPromotion)
+                : Optional.empty();
+        if (summary.isPresent()) {
+            resp.setTotalCount((int) summary.get().totalCount());
+            resp.setFilters(summary.get().filters());
+            return resp;
+        }
+
         // Count
         CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
         Root<Product> countRoot = countQuery.from(Product.class);
@@ -106,12 +129,6 @@ public class ProductService {
         countQuery.select(cb.count(countRoot));
         long totalCount = em.createQuery(countQuery).getSingleResult();
 
-        // Page
-        List<Product> products = em.createQuery(cq.select(root))
-                .setFirstResult((page - 1) * pageSize)
-                .setMaxResults(pageSize)
-                .getResultList();
-
         // Facets with self-exclusion
         FilterOptions filters = new FilterOptions();
 
@@ -170,8 +187,6 @@ public class ProductService {
     long promoCount = em.createQuery(promoQ).getSingleResult();
         filters.setHasPromotions(promoCount > 0);
 
-        ProductResponse resp = new ProductResponse();
-        resp.setProducts(products);
         resp.setTotalCount((int) totalCount);
         resp.setFilters(filters);
         return resp;
@@ -182,6 +197,46 @@ public class ProductService {
         return repository.findById(id);
     }
 
+    /** Returns the product as stored, e.g. with its price rounded to the column's scale. */
+    @Transactional
+    public Product createProduct(Product product) {
+        product.setId(null);
+        Product saved = repository.saveAndFlush(product);
+        em.refresh(saved);
+        return saved;
+    }
+
+    /**
+     * Replaces every field of an existing product and returns it as stored. Returns empty when there is
+     * no product with this id.
+     */
+    @Transactional
+    public Optional<Product> updateProduct(int id, Product changes) {
+        return repository.findById(id).map(existing -> {
+            existing.setTitle(changes.getTitle());
+            existing.setDescription(changes.getDescription());
+            existing.setBrand(changes.getBrand());
+            existing.setCategory(changes.getCategory());
+            existing.setColor(changes.getColor());
+            existing.setSize(changes.getSize());
+            existing.setPrice(changes.getPrice());
+            existing.setRating(changes.getRating());
+            existing.setOnPromotion(changes.isOnPromotion());
+            existing.getImageUrls().clear();
+            if (changes.getImageUrls() != null) existing.getImageUrls().addAll(changes.getImageUrls());
+            Product saved = repository.saveAndFlush(existing);
+            em.refresh(saved);
+            return saved;
+        });
+    }
+
+    @Transactional
+    public boolean deleteProduct(int id) {
+        Optional<Product> existing = repository.findById(id);
+        existing.ifPresent(repository::delete);
+        return existing.isPresent();
+    }
+
     private Predicate[] predicatesWithRoot(CriteriaBuilder cb, Root<Product> root,
                                            List<Integer> ids,
                                            List<String> categories,
@@ -0,0 +1,137 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sampled, rolling frequency log of the queries clients send, used to warm the cache after a deploy or flush.
+ * Counts are halved every time the log is persisted so that popularity follows recent traffic.
+ * Nothing is recorded, loaded or written while warm-up is disabled.
+ */
+@Component
+public class QueryLog {
+    private static final Logger log = LoggerFactory.getLogger(QueryLog.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    public enum Kind { PAGE, COUNT, SEARCH }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int maxEntries;
+    private final Path path;
+
+    public QueryLog(@Value("${app.cache.warmup.enabled:true}") boolean enabled,
+                    @Value("${app.cache.warmup.sample-rate:0.1}") double sampleRate,
+                    @Value("${app.cache.warmup.max-logged-queries:5000}") int maxEntries,
+                    @Value("${app.cache.warmup.query-log-path:${user.home}/.fuzfriend/query-log.json}") String path) {
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.path = Path.of(path);
+    }
+
+    public void record(Kind kind, ProductQueryDto query, CacheCodec codec) {
+        if (!enabled) return;
+        if (sampleRate < 1.0 && ThreadLocalRandom.current().nextDouble() >= sampleRate) return;
+        String id = kind + "|" + codec.name() + "|" + ProductCacheKeys.queryHash(query);
+        entries.computeIfAbsent(id, k -> new Entry(kind, codec.name(), query)).count.incrementAndGet();
+        if (entries.size() > maxEntries) trim(maxEntries / 2);
+    }
+
+    /** Most frequent queries first. */
+    public List<Entry> top(int limit) {
+        return entries.values().stream()
+                .sorted(Comparator.comparingLong(Entry::getCount).reversed())
+                .limit(limit)
+                .toList();
+    }
+
+    @PostConstruct
+    void load() {
+        if (!enabled || !Files.exists(path)) return;
+        try {
+            List<Entry> saved = MAPPER.readValue(path.toFile(), new TypeReference<List<Entry>>() {});
+            for (Entry e : saved) {
+                if (e.getKind() == null || e.getCodec() == null) continue;
+                entries.put(e.getKind() + "|" + e.getCodec() + "|" + ProductCacheKeys.queryHash(e.getQuery()), e);
+            }
+            log.info("Loaded {} logged queries from {}", entries.size(), path);
+        } catch (IOException e) {
+            log.warn("Could not read query log {}: {}", path, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cache.warmup.persist-interval-ms:60000}")
+    void persistAndDecay() {
+        persist();
+        entries.values().removeIf(e -> e.count.updateAndGet(c -> c >>> 1) == 0);
+    }
+
+    @PreDestroy
+    void persist() {
+        if (!enabled || entries.isEmpty()) return;
+        try {
+            Path dir = path.toAbsolutePath().getParent();
+            if (dir != null) Files.createDirectories(dir);
+            Path tmp = Files.createTempFile(dir, "query-log", ".tmp");
+            MAPPER.writeValue(tmp.toFile(), top(maxEntries));
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Could not persist query log to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private synchronized void trim(int keep) {
+        if (entries.size() <= maxEntries) return;
+        Set<Entry> kept = new HashSet<>(top(keep));
+        entries.values().retainAll(kept);
+    }
+
+    public static class Entry {
+        private Kind kind;
+        private String codec;
+        private ProductQueryDto query;
+        private final AtomicLong count = new AtomicLong();
+
+        public Entry() {}
+
+        Entry(Kind kind, String codec, ProductQueryDto query) {
+            this.kind = kind;
+            this.codec = codec;
+            this.query = query == null ? new ProductQueryDto() : query;
+        }
+
+        public Kind getKind() { return kind; }
+        public void setKind(Kind kind) { this.kind = kind; }
+        public String getCodec() { return codec; }
+        public void setCodec(String codec) { this.codec = codec; }
+        public ProductQueryDto getQuery() { return query; }
+        public void setQuery(ProductQueryDto query) { this.query = query; }
+        public long getCount() { return count.get(); }
+        public void setCount(long count) { this.count.set(count); }
+    }
+}
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS products (
+    id           INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title        VARCHAR(255)     NOT NULL,
+    description  CHARACTER LARGE OBJECT,
+    brand        VARCHAR(255)     NOT NULL,
+    category     VARCHAR(255)     NOT NULL,
+    color        VARCHAR(255),
+    size         VARCHAR(255),
+    price        NUMERIC(12, 2),
+    rating       DOUBLE PRECISION NOT NULL,
+    on_promotion BOOLEAN          NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS product_image_urls (
+    product_id INTEGER NOT NULL REFERENCES products (id),
+    image_url  VARCHAR(255)
+);
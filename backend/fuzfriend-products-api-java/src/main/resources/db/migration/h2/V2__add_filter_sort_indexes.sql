@@ -0,0 +1,16 @@
+-- Mirrors the PostgreSQL indexes where H2 supports them. H2 has no partial, INCLUDE or expression
+-- indexes, so the promotion index leads with the flag and the trigram indexes are omitted.
+CREATE INDEX IF NOT EXISTS ix_products_title ON products (title);
+CREATE INDEX IF NOT EXISTS ix_products_price ON products (price);
+CREATE INDEX IF NOT EXISTS ix_products_rating ON products (rating);
+
+CREATE INDEX IF NOT EXISTS ix_products_category_title ON products (category, title);
+CREATE INDEX IF NOT EXISTS ix_products_category_price ON products (category, price);
+CREATE INDEX IF NOT EXISTS ix_products_brand_title ON products (brand, title);
+CREATE INDEX IF NOT EXISTS ix_products_color_size ON products (color, size);
+CREATE INDEX IF NOT EXISTS ix_products_size ON products (size);
+CREATE INDEX IF NOT EXISTS ix_products_promotion_title ON products (on_promotion, title);
+
+CREATE INDEX IF NOT EXISTS ix_products_facets ON products (category, brand, color, size);
+
+CREATE INDEX IF NOT EXISTS ix_product_image_urls_product_id ON product_image_urls (product_id);
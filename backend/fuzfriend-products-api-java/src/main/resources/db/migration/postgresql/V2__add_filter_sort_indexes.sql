@@ -0,0 +1,42 @@
+-- Default title sort and the single-column sorts used without filters
+CREATE INDEX IF NOT EXISTS ix_products_title ON products (title);
+CREATE INDEX IF NOT EXISTS ix_products_price ON products (price);
+CREATE INDEX IF NOT EXISTS ix_products_rating ON products (rating);
+
+-- Facet filters paired with the sorts they are most often combined with
+CREATE INDEX IF NOT EXISTS ix_products_category_title ON products (category, title);
+CREATE INDEX IF NOT EXISTS ix_products_category_price ON products (category, price);
+CREATE INDEX IF NOT EXISTS ix_products_brand_title ON products (brand, title);
+CREATE INDEX IF NOT EXISTS ix_products_color_size ON products (color, size);
+CREATE INDEX IF NOT EXISTS ix_products_size ON products (size);
+CREATE INDEX IF NOT EXISTS ix_products_promotion_title ON products (title) WHERE on_promotion;
+
+-- Covers the facet group counts, price min/max and rating lookups so they can run as index-only scans
+CREATE INDEX IF NOT EXISTS ix_products_facets ON products (category, brand, color, size)
+    INCLUDE (price, rating, on_promotion);
+
+-- Image URLs are fetched by product id for every page
+CREATE INDEX IF NOT EXISTS ix_product_image_urls_product_id ON product_image_urls (product_id);
+
+-- Free-text search is lower(title) LIKE '%q%' OR lower(description) ... OR lower(brand) ... OR
+-- lower(category) ..., which only trigram indexes can serve, and a BitmapOr needs one on every column.
+-- pg_trgm may be missing (no contrib package) or need privileges the application role doesn't have,
+-- so it is optional.
+DO $$
+BEGIN
+    CREATE EXTENSION IF NOT EXISTS pg_trgm;
+EXCEPTION WHEN OTHERS THEN
+    RAISE NOTICE 'pg_trgm unavailable (%), skipping trigram indexes', SQLERRM;
+END
+$$;
+
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') THEN
+        CREATE INDEX IF NOT EXISTS ix_products_lower_title_trgm ON products USING gin (lower(title) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS ix_products_lower_description_trgm ON products USING gin (lower(description) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS ix_products_lower_brand_trgm ON products USING gin (lower(brand) gin_trgm_ops);
+        CREATE INDEX IF NOT EXISTS ix_products_lower_category_trgm ON products USING gin (lower(category) gin_trgm_ops);
+    END IF;
+END
+$$;
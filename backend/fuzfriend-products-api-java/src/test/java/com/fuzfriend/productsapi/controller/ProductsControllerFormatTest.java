@@ -0,0 +1,203 @@
+package com.fuzfriend.productsapi.controller;
+
+import com.fuzfriend.productsapi.dto.ProductResponse;
+import com.fuzfriend.productsapi.model.Product;
+import com.fuzfriend.productsapi.repository.ProductRepository;
+import com.fuzfriend.productsapi.service.CacheCodecs;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Content negotiation, per-format caching and response compression of the products endpoints.
+ * Compression is applied by the embedded server, so that case goes over a real connection.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductsControllerFormatTest {
+    private static final String SMILE = "application/x-jackson-smile";
+    private static final String CBOR = "application/cbor";
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @LocalServerPort
+    private int port;
+
+    private int firstId;
+
+    @BeforeEach
+    void seed() {
+        repository.deleteAll();
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Product p = new Product();
+            p.setTitle("Product " + i);
+            p.setDescription("A fairly long description so that a page of products is well over two kilobytes. " + i);
+            p.setBrand("Sony");
+            p.setCategory("Cameras");
+            p.setPrice(new BigDecimal("10.00").add(BigDecimal.valueOf(i)));
+            p.setRating(4.0);
+            products.add(p);
+        }
+        firstId = repository.saveAll(products).get(0).getId();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll();
+    }
+
+    // CORS adds its own Vary values, so Accept only has to be among them
+    private static ResultMatcher variesOnAccept() {
+        return result -> {
+            List<String> vary = result.getResponse().getHeaders(HttpHeaders.VARY).stream()
+                    .flatMap(v -> Arrays.stream(v.split(",")))
+                    .map(String::trim)
+                    .toList();
+            assertTrue(vary.contains(HttpHeaders.ACCEPT), "Vary: " + vary);
+        };
+    }
+
+    private String negotiated(String accept) throws Exception {
+        return mvc.perform(get("/api/products/count").header(HttpHeaders.ACCEPT, accept).header("X-Bypass-Cache", "1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentType();
+    }
+
+    @Test
+    void picksTheHighestQualityFormat() throws Exception {
+        assertEquals(CBOR, negotiated("application/json;q=0.5, application/cbor;q=0.9"));
+        assertEquals(SMILE, negotiated("application/json;q=0.1, application/x-jackson-smile"));
+        assertEquals("application/json", negotiated("application/cbor;q=0, application/json;q=0.2"));
+        assertEquals("application/json", negotiated("*/*"));
+        assertEquals(CBOR, negotiated("text/html;q=1.0, application/cbor;q=0.3"));
+    }
+
+    @Test
+    void unsupportedTypeIsNotAcceptable() throws Exception {
+        mvc.perform(get("/api/products/count").header(HttpHeaders.ACCEPT, "text/plain"))
+                .andExpect(status().isNotAcceptable());
+        mvc.perform(get("/api/products/" + firstId).header(HttpHeaders.ACCEPT, "application/xml"))
+                .andExpect(status().isNotAcceptable());
+    }
+
+    @Test
+    void binaryFormatsAreCachedAndServedFromTheStoredBytes() throws Exception {
+        for (String type : List.of(SMILE, CBOR)) {
+            MvcResult miss = mvc.perform(get("/api/products?page=1&pageSize=5").header(HttpHeaders.ACCEPT, type))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Cache-Status", "MISS"))
+                    .andExpect(content().contentType(type))
+                    .andReturn();
+            MvcResult hit = mvc.perform(get("/api/products?page=1&pageSize=5").header(HttpHeaders.ACCEPT, type))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("X-Cache-Status", "HIT"))
+                    .andExpect(content().contentType(type))
+                    .andReturn();
+            byte[] body = hit.getResponse().getContentAsByteArray();
+            assertArrayEquals(miss.getResponse().getContentAsByteArray(), body, type);
+
+            ProductResponse decoded = (type.equals(SMILE) ? CacheCodecs.SMILE : CacheCodecs.CBOR)
+                    .decode(body, ProductResponse.class);
+            assertEquals(20, decoded.getTotalCount());
+            assertEquals(5, decoded.getProducts().size());
+        }
+    }
+
+    @Test
+    void formatsAreCachedUnderSeparateKeys() throws Exception {
+        String jsonKey = mvc.perform(get("/api/products/count").header(HttpHeaders.ACCEPT, "application/json"))
+                .andReturn().getResponse().getHeader("X-Cache-Key");
+        mvc.perform(get("/api/products/count").header(HttpHeaders.ACCEPT, CBOR))
+                .andExpect(header().string("X-Cache-Status", "MISS"));
+        String cborKey = mvc.perform(get("/api/products/count").header(HttpHeaders.ACCEPT, CBOR))
+                .andExpect(header().string("X-Cache-Status", "HIT"))
+                .andReturn().getResponse().getHeader("X-Cache-Key");
+        assertNotEquals(jsonKey, cborKey);
+    }
+
+    @Test
+    void everyFormattedResponseVariesOnAccept() throws Exception {
+        for (String status : List.of("MISS", "HIT")) {
+            mvc.perform(get("/api/products/" + firstId).header(HttpHeaders.ACCEPT, SMILE))
+                    .andExpect(header().string("X-Cache-Status", status))
+                    .andExpect(variesOnAccept());
+        }
+        mvc.perform(get("/api/products/count").header("X-Bypass-Cache", "1"))
+                .andExpect(header().string("X-Cache-Status", "BYPASS"))
+                .andExpect(variesOnAccept());
+    }
+
+    @Test
+    void hitReportsTheIdOfTheCachedProduct() throws Exception {
+        for (String status : List.of("MISS", "HIT")) {
+            mvc.perform(get("/api/products/" + firstId).header(HttpHeaders.ACCEPT, CBOR))
+                    .andExpect(header().string("X-Cache-Status", status))
+                    .andExpect(header().string("X-Requested-Id", Integer.toString(firstId)))
+                    .andExpect(header().string("X-Returned-Id", Integer.toString(firstId)));
+        }
+    }
+
+    @Test
+    void jsonOverTwoKilobytesIsGzipped() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<byte[]> page = client.send(request("/api/products?page=1&pageSize=20", "application/json"),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, page.statusCode());
+        assertEquals("gzip", page.headers().firstValue(HttpHeaders.CONTENT_ENCODING).orElse(null));
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(page.body())).readAllBytes();
+        assertTrue(json.length > 2048, "uncompressed page is " + json.length + " bytes");
+
+        HttpResponse<byte[]> count = client.send(request("/api/products/count", "application/json"),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertTrue(count.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty());
+        assertEquals("20", new String(count.body()));
+
+        HttpResponse<byte[]> cbor = client.send(request("/api/products?page=1&pageSize=20", CBOR),
+                HttpResponse.BodyHandlers.ofByteArray());
+        assertTrue(cbor.body().length > 2048);
+        assertTrue(cbor.headers().firstValue(HttpHeaders.CONTENT_ENCODING).isEmpty(), "only JSON is compressed");
+    }
+
+    private HttpRequest request(String path, String accept) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .header(HttpHeaders.ACCEPT, accept)
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.fuzfriend.productsapi.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuzfriend.productsapi.repository.ProductRepository;
+import com.fuzfriend.productsapi.service.CacheService;
+import com.fuzfriend.productsapi.service.FacetSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Writes move the catalog to a new generation, and reads under that generation must count the write,
+ * whether it was made here or by another instance sharing the database and the generation.
+ * The generation check is pushed out so the test decides when the summary catches up.
+ */
+@SpringBootTest(properties = "app.facets.summary.generation-check-ms=3600000")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductsControllerGenerationTest {
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private CacheService cache;
+
+    @Autowired
+    private FacetSummary summary;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void emptyCatalog() {
+        repository.deleteAll();
+        summary.rebuild();
+    }
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll();
+    }
+
+    private int create(String brand, String category) throws Exception {
+        String body = mapper.writeValueAsString(Map.of("title", brand + " " + category, "brand", brand,
+                "category", category, "price", 100, "rating", 4.0));
+        MvcResult result = mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsByteArray()).get("id").asInt();
+    }
+
+    private JsonNode search(String brand) throws Exception {
+        String body = mapper.writeValueAsString(Map.of("brands", new String[]{brand}));
+        MvcResult result = mvc.perform(post("/api/products/search").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    private JsonNode getById(int id, boolean bypass, String cacheStatus) throws Exception {
+        MvcResult result = mvc.perform(get("/api/products/" + id).header("X-Bypass-Cache", bypass ? "1" : "0"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache-Status", cacheStatus))
+                .andReturn();
+        return mapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    private static void assertPrice(String expected, JsonNode product) {
+        assertEquals(0, new BigDecimal(expected).compareTo(product.get("price").decimalValue()),
+                "price " + product.get("price"));
+    }
+
+    private void expectCount(int count, String cacheStatus) throws Exception {
+        mvc.perform(get("/api/products/count"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Cache-Status", cacheStatus))
+                .andExpect(content().string(Integer.toString(count)));
+    }
+
+    @Test
+    void writeEndpointsBumpTheGenerationAndReadsCountTheChange() throws Exception {
+        long generation = cache.currentGeneration();
+        int first = create("Sony", "Laptops");
+        int second = create("Sony", "Laptops");
+        create("Apple", "Cameras");
+        assertEquals(generation + 3, cache.currentGeneration());
+
+        expectCount(3, "MISS");
+        expectCount(3, "HIT");
+        JsonNode sony = search("Sony");
+        assertEquals(2, sony.get("totalCount").asInt());
+        assertEquals(2, sony.at("/filters/categoryCounts/Laptops").asInt());
+
+        String moved = mapper.writeValueAsString(Map.of("title", "Sony Camera", "brand", "Sony",
+                "category", "Cameras", "price", 100, "rating", 4.0));
+        mvc.perform(put("/api/products/" + first).contentType(MediaType.APPLICATION_JSON).content(moved))
+                .andExpect(status().isOk());
+        assertEquals(generation + 4, cache.currentGeneration());
+        expectCount(3, "MISS");
+        sony = search("Sony");
+        assertEquals(1, sony.at("/filters/categoryCounts/Laptops").asInt());
+        assertEquals(1, sony.at("/filters/categoryCounts/Cameras").asInt());
+
+        mvc.perform(delete("/api/products/" + second)).andExpect(status().isNoContent());
+        assertEquals(generation + 5, cache.currentGeneration());
+        expectCount(2, "MISS");
+        sony = search("Sony");
+        assertEquals(1, sony.get("totalCount").asInt());
+        assertTrue(sony.at("/filters/categoryCounts/Laptops").isMissingNode());
+    }
+
+    @Test
+    void writeByAnotherInstanceIsCountedBeforeTheSummaryCatchesUp() throws Exception {
+        create("Sony", "Laptops");
+        create("Apple", "Cameras");
+        expectCount(2, "MISS");
+
+        // Another instance commits a product, which this instance's entity listener never sees, then bumps
+        // the shared generation.
+        jdbc.update("INSERT INTO products (title, brand, category, price, rating, on_promotion) "
+                + "VALUES ('Sony Headphones', 'Sony', 'Headphones', 50, 4.5, FALSE)");
+        cache.bumpGeneration();
+
+        expectCount(3, "MISS");
+        expectCount(3, "HIT");
+        JsonNode sony = search("Sony");
+        assertEquals(2, sony.get("totalCount").asInt());
+        assertEquals(1, sony.at("/filters/categoryCounts/Headphones").asInt());
+        assertEquals(2, sony.at("/filters/brandCounts/Sony").asInt());
+
+        summary.followGeneration();
+        assertEquals(3, summary.summarize(null, null, null, null, null, null, null, null).orElseThrow().totalCount());
+    }
+
+    @Test
+    void writesCacheTheProductAsStoredNotAsSent() throws Exception {
+        String body = mapper.writeValueAsString(Map.of("title", "Sony Laptop", "brand", "Sony",
+                "category", "Laptops", "price", new BigDecimal("99.999"), "rating", 4.0));
+        MvcResult created = mvc.perform(post("/api/products").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn();
+        JsonNode product = mapper.readTree(created.getResponse().getContentAsByteArray());
+        assertPrice("100.00", product); // products.price is NUMERIC(12, 2)
+        int id = product.get("id").asInt();
+        assertPrice("100.00", getById(id, false, "HIT"));
+        assertPrice("100.00", getById(id, true, "BYPASS"));
+
+        String changed = mapper.writeValueAsString(Map.of("title", "Sony Laptop", "brand", "Sony",
+                "category", "Laptops", "price", new BigDecimal("12.3449"), "rating", 4.0));
+        MvcResult updated = mvc.perform(put("/api/products/" + id).contentType(MediaType.APPLICATION_JSON).content(changed))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertPrice("12.34", mapper.readTree(updated.getResponse().getContentAsByteArray()));
+        assertPrice("12.34", getById(id, false, "HIT"));
+        assertPrice("12.34", getById(id, true, "BYPASS"));
+    }
+}
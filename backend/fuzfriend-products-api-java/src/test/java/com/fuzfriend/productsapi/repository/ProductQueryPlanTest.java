@@ -0,0 +1,190 @@
+package com.fuzfriend.productsapi.repository;
+
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import com.fuzfriend.productsapi.service.CacheService;
+import com.fuzfriend.productsapi.service.FacetSummary;
+import com.fuzfriend.productsapi.service.FacetSummaryListener;
+import com.fuzfriend.productsapi.service.ProductService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Guards the Flyway indexes against plan regressions. Each case runs a request through ProductService,
+ * captures the SQL Hibernate actually sends, and EXPLAINs every statement; none may be planned as a full
+ * table scan. H2 plans a prepared statement without needing its parameter values, so the statements are
+ * explained exactly as captured, placeholders included. An index read with no condition is only allowed
+ * when it supplies the sort order of a limited page; anywhere else it visits every row.
+ * The summary's generation check is pushed out so a stale summary stays stale for the whole case.
+ */
+@DataJpaTest(properties = {"spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.fuzfriend.productsapi.repository.CapturingStatementInspector",
+        "app.facets.summary.generation-check-ms=3600000"})
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductService.class, FacetSummary.class, FacetSummaryListener.class})
+class ProductQueryPlanTest {
+    private static final String[] CATEGORIES = {"Smartphones", "Laptops", "Headphones", "Footwear", "Cameras"};
+    private static final String[] BRANDS = {"Apple", "Samsung", "Sony", "Nike", "Dell", "Canon"};
+    private static final String[] COLORS = {"Black", "White", "Blue", "Red"};
+    private static final String[] SIZES = {"Small", "Medium", "Large", "128GB"};
+    private static final Pattern UNBOUNDED_INDEX_SCAN = Pattern.compile("/\\* PUBLIC\\.\\w+ \\*/");
+
+    // Generation 0 unless a case says otherwise, so the summary counts as current.
+    @MockBean
+    private CacheService cache;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private FacetSummary facetSummary;
+
+    @Autowired
+    private EntityManager em;
+
+    @BeforeEach
+    void seed() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(new Object[]{"Product " + i, "Description " + i, BRANDS[i % BRANDS.length],
+                    CATEGORIES[i % CATEGORIES.length], COLORS[i % COLORS.length], SIZES[i % SIZES.length],
+                    10 + (i * 7) % 1990, 3.0 + (i % 20) / 10.0, i % 3 == 0});
+        }
+        jdbc.batchUpdate("insert into products (title, description, brand, category, color, size, price, rating, on_promotion) "
+                + "values (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+        jdbc.update("insert into product_image_urls (product_id, image_url) select id, 'https://img/' || id from products");
+        facetSummary.rebuild();
+        em.clear();
+        CapturingStatementInspector.clear();
+    }
+
+    private static Arguments search(String name, Consumer<ProductQueryDto> setup) {
+        ProductQueryDto q = new ProductQueryDto();
+        setup.accept(q);
+        return Arguments.of(name, q);
+    }
+
+    static Stream<Arguments> hotSearches() {
+        return Stream.of(
+                search("default browse, title sort", q -> {}),
+                search("sort by price", q -> q.setSortBy("price")),
+                search("category filter, title sort", q -> q.setCategories(List.of("Laptops", "Cameras"))),
+                search("category filter, price sort", q -> { q.setCategory("Laptops"); q.setSortBy("price"); q.setSortDirection("desc"); }),
+                search("brand filter", q -> q.setBrands(List.of("Apple", "Sony"))),
+                search("colour and size filter", q -> { q.setColours(List.of("Black")); q.setSizes(List.of("Large")); }),
+                search("size filter", q -> q.setSizes(List.of("128GB"))),
+                search("price range", q -> { q.setMinPrice(BigDecimal.valueOf(100)); q.setMaxPrice(BigDecimal.valueOf(500)); q.setSortBy("price"); }),
+                search("minimum rating", q -> { q.setMinRating(4.0); q.setSortBy("rating"); q.setSortDirection("desc"); }),
+                search("on promotion", q -> q.setOnPromotion(true)),
+                search("ids, live counts and facets", q -> q.setIds(List.of(1, 2, 3, 4, 5)))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotSearches")
+    void hotSearchUsesIndexes(String name, ProductQueryDto query) throws SQLException {
+        service.getProducts(query);
+        assertNoTableScans(name);
+    }
+
+    static Stream<Arguments> staleSummarySearches() {
+        return Stream.of(
+                search("category filter", q -> q.setCategories(List.of("Laptops", "Cameras"))),
+                search("category and brand filter", q -> { q.setCategory("Laptops"); q.setBrands(List.of("Apple", "Sony")); }),
+                search("category filter, price sort", q -> { q.setCategory("Cameras"); q.setSortBy("price"); }),
+                search("brand filter", q -> q.setBrands(List.of("Apple", "Sony"))),
+                search("brand and colour filter", q -> { q.setBrands(List.of("Canon")); q.setColours(List.of("Black", "Red")); })
+        );
+    }
+
+    /**
+     * Another instance has bumped the generation, so the total, facet counts, price range, ratings and
+     * promotion count come from live queries. A facet's own filter is left out of its group count, so with a
+     * single facet filtered that count has no condition and covers the whole catalog by design; PostgreSQL
+     * reads it from ix_products_facets alone. H2 can't include columns, so it only picks that index when the
+     * category filter leads, and the case checks it does for the other facets' counts.
+     */
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("staleSummarySearches")
+    void staleSummarySearchUsesIndexes(String name, ProductQueryDto query) throws SQLException {
+        when(cache.currentGeneration()).thenReturn(1L);
+        service.getProducts(query);
+
+        List<String> statements = CapturingStatementInspector.statements();
+        assertTrue(statements.stream().anyMatch(sql -> sql.contains(" group by ")), name + " ran no live facet counts");
+        assertNoTableScans(name, sql -> !sql.contains(" where "));
+        if (query.getCategory() == null && query.getCategories() == null) return;
+        try (Connection connection = dataSource.getConnection()) {
+            for (String sql : statements) {
+                if (!sql.contains(" group by ") || sql.startsWith("select p1_0.category ")) continue;
+                String plan = explain(connection, sql);
+                assertTrue(plan.contains("IX_PRODUCTS_FACETS"), name + " counts a facet without ix_products_facets:\n" + plan);
+            }
+        }
+    }
+
+    @Test
+    void productByIdUsesIndexes() throws SQLException {
+        service.getProductById(42);
+        assertNoTableScans("product by id");
+    }
+
+    private void assertNoTableScans(String name) throws SQLException {
+        assertNoTableScans(name, sql -> false);
+    }
+
+    private void assertNoTableScans(String name, Predicate<String> readsEveryRow) throws SQLException {
+        List<String> statements = CapturingStatementInspector.statements();
+        assertFalse(statements.isEmpty(), name + " ran no SQL");
+        try (Connection connection = dataSource.getConnection()) {
+            for (String sql : statements) {
+                if (readsEveryRow.test(sql)) continue;
+                String plan = explain(connection, sql);
+                assertFalse(plan.contains(".tableScan"), name + " falls back to a full table scan:\n" + plan);
+                assertFalse(UNBOUNDED_INDEX_SCAN.matcher(plan).find() && !plan.contains("/* index sorted */"),
+                        name + " reads a whole index without a limit:\n" + plan);
+            }
+        }
+    }
+
+    private static String explain(Connection connection, String sql) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("explain " + sql);
+             ResultSet rs = ps.executeQuery()) {
+            StringBuilder plan = new StringBuilder();
+            while (rs.next()) plan.append(rs.getString(1)).append('\n');
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fuzfriend.productsapi.dto.FilterOptions;
+import com.fuzfriend.productsapi.dto.ProductResponse;
+import com.fuzfriend.productsapi.model.Product;
+import com.github.javafaker.Faker;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Compares the cache payload formats on a 100-product page: size in Redis plus average encode and
+ * decode time. Run with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.fuzfriend.productsapi.service.CacheCodecBenchmark}.
+ */
+public class CacheCodecBenchmark {
+    private static final int WARMUP_ITERATIONS = 2_000;
+    private static final int MEASURED_ITERATIONS = 5_000;
+    private static final ObjectMapper LEGACY_MAPPER = new ObjectMapper()
+            .setPropertyNamingStrategy(PropertyNamingStrategies.LOWER_CAMEL_CASE)
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    interface Format {
+        byte[] encode(ProductResponse value) throws Exception;
+        ProductResponse decode(byte[] data) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        ProductResponse page = samplePage(100);
+
+        Map<String, Format> formats = new LinkedHashMap<>();
+        formats.put("json string (legacy)", new Format() {
+            public byte[] encode(ProductResponse v) throws Exception {
+                return LEGACY_MAPPER.writeValueAsString(v).getBytes(StandardCharsets.UTF_8);
+            }
+            public ProductResponse decode(byte[] d) throws Exception {
+                return LEGACY_MAPPER.readValue(new String(d, StandardCharsets.UTF_8), ProductResponse.class);
+            }
+        });
+        formats.put("json + deflate", envelope(CacheCodecs.JSON, 1024));
+        formats.put("smile", envelope(CacheCodecs.SMILE, 0));
+        formats.put("smile + deflate", envelope(CacheCodecs.SMILE, 1024));
+
+        System.out.printf("%-22s %10s %14s %14s%n", "format", "bytes", "encode (us)", "decode (us)");
+        long sink = 0;
+        for (Map.Entry<String, Format> e : formats.entrySet()) {
+            Format format = e.getValue();
+            byte[] encoded = format.encode(page);
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                sink += format.encode(page).length;
+                sink += format.decode(encoded).getTotalCount();
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) sink += format.encode(page).length;
+            double encodeMicros = (System.nanoTime() - start) / 1_000.0 / MEASURED_ITERATIONS;
+            start = System.nanoTime();
+            for (int i = 0; i < MEASURED_ITERATIONS; i++) sink += format.decode(encoded).getTotalCount();
+            double decodeMicros = (System.nanoTime() - start) / 1_000.0 / MEASURED_ITERATIONS;
+            System.out.printf("%-22s %10d %14.1f %14.1f%n", e.getKey(), encoded.length, encodeMicros, decodeMicros);
+        }
+        if (sink == 42) System.out.println();
+    }
+
+    private static Format envelope(CacheCodec codec, int compressionThreshold) {
+        return new Format() {
+            public byte[] encode(ProductResponse v) throws Exception {
+                return CacheEnvelope.wrap(codec, codec.encode(v), compressionThreshold);
+            }
+            public ProductResponse decode(byte[] d) throws Exception {
+                return codec.decode(CacheEnvelope.unwrapAs(d, codec, ProductResponse.class), ProductResponse.class);
+            }
+        };
+    }
+
+    private static ProductResponse samplePage(int size) {
+        Faker faker = new Faker(new Random(42));
+        String[] categories = {"Smartphones", "Laptops", "Headphones", "Footwear", "Accessories",
+                "Gaming", "Home Appliances", "Beauty", "Watches", "Cameras"};
+        String[] brands = {"Apple", "Samsung", "Sony", "Nike", "Adidas", "Dell", "HP",
+                "LG", "Canon", "Panasonic", "Bose", "JBL", "Microsoft", "Asus", "Lenovo"};
+        String[] colors = {"Black", "White", "Blue", "Red", "Green", "Silver", "Grey", "Gold"};
+        String[] sizes = {"Small", "Medium", "Large", "128GB", "256GB", "512GB", "One Size", "UK 9", "EU 42"};
+
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Product p = new Product();
+            p.setId(i + 1);
+            p.setTitle(faker.commerce().productName());
+            p.setDescription(faker.lorem().sentence(12));
+            p.setBrand(brands[i % brands.length]);
+            p.setCategory(categories[i % categories.length]);
+            p.setColor(colors[i % colors.length]);
+            p.setSize(sizes[i % sizes.length]);
+            p.setPrice(BigDecimal.valueOf(faker.number().randomDouble(2, 10, 2000)).setScale(2, RoundingMode.HALF_UP));
+            p.setRating(Math.round(faker.number().randomDouble(1, 3, 5) * 10.0) / 10.0);
+            p.setOnPromotion(i % 2 == 0);
+            p.setImageUrls(List.of(
+                    "https://images.pexels.com/photos/1289904/pexels-photo-1289904.jpeg",
+                    "https://images.pexels.com/photos/1334597/pexels-photo-1334597.jpeg"));
+            products.add(p);
+        }
+
+        FilterOptions filters = new FilterOptions();
+        filters.setCategoryCounts(counts(categories));
+        filters.setBrandCounts(counts(brands));
+        filters.setColourCounts(counts(colors));
+        filters.setSizeCounts(counts(sizes));
+        filters.setCategories(Arrays.stream(categories).sorted().toList());
+        filters.setBrands(Arrays.stream(brands).sorted().toList());
+        filters.setColours(Arrays.stream(colors).sorted().toList());
+        filters.setSizes(Arrays.stream(sizes).sorted().toList());
+        filters.setMinPrice(new BigDecimal("10.15"));
+        filters.setMaxPrice(new BigDecimal("1998.40"));
+        filters.setRatings(List.of(3, 4, 5));
+        filters.setHasPromotions(true);
+
+        ProductResponse resp = new ProductResponse();
+        resp.setProducts(products);
+        resp.setTotalCount(1000);
+        resp.setFilters(filters);
+        return resp;
+    }
+
+    private static Map<String, Integer> counts(String[] values) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < values.length; i++) counts.put(values[i], 40 + i * 7);
+        return counts;
+    }
+}
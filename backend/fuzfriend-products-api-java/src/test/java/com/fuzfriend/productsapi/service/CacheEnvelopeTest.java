@@ -0,0 +1,93 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheEnvelopeTest {
+    private static Product product(String description) {
+        Product p = new Product();
+        p.setId(7);
+        p.setTitle("Sony Camera");
+        p.setDescription(description);
+        p.setBrand("Sony");
+        p.setCategory("Cameras");
+        p.setPrice(new BigDecimal("499.99"));
+        p.setRating(4.5);
+        return p;
+    }
+
+    private static void assertSameProduct(Product expected, Product actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getTitle(), actual.getTitle());
+        assertEquals(expected.getDescription(), actual.getDescription());
+        assertEquals(0, expected.getPrice().compareTo(actual.getPrice()));
+    }
+
+    @Test
+    void roundTripsTheBodyInEveryCodec() throws Exception {
+        Product product = product("short");
+        for (CacheCodec codec : new CacheCodec[]{CacheCodecs.JSON, CacheCodecs.SMILE, CacheCodecs.CBOR}) {
+            byte[] body = codec.encode(product);
+            byte[] entry = CacheEnvelope.wrap(codec, body, 0);
+
+            assertEquals(CacheEnvelope.MAGIC, entry[0]);
+            assertEquals(CacheEnvelope.VERSION, entry[1]);
+            assertEquals(codec.id(), entry[2]);
+            assertEquals(0, entry[3]);
+            assertArrayEquals(body, CacheEnvelope.unwrapAs(entry, codec, Product.class), codec.name());
+        }
+    }
+
+    @Test
+    void deflatesOnlyAtTheThresholdAndWhenItHelps() throws Exception {
+        byte[] body = CacheCodecs.JSON.encode(product("repetitive ".repeat(200)));
+
+        byte[] below = CacheEnvelope.wrap(CacheCodecs.JSON, body, body.length + 1);
+        assertEquals(0, below[3] & CacheEnvelope.FLAG_DEFLATE);
+
+        byte[] compressed = CacheEnvelope.wrap(CacheCodecs.JSON, body, body.length);
+        assertEquals(CacheEnvelope.FLAG_DEFLATE, compressed[3] & CacheEnvelope.FLAG_DEFLATE);
+        assertTrue(compressed.length < body.length);
+        assertArrayEquals(body, CacheEnvelope.unwrapAs(compressed, CacheCodecs.JSON, Product.class));
+
+        byte[] incompressible = {1, 2, 3, 4, 5, 6, 7, 8};
+        byte[] kept = CacheEnvelope.wrap(CacheCodecs.JSON, incompressible, 1);
+        assertEquals(0, kept[3] & CacheEnvelope.FLAG_DEFLATE);
+    }
+
+    @Test
+    void unknownVersionCodecOrMissingHeaderIsAMiss() throws Exception {
+        byte[] entry = CacheEnvelope.wrap(CacheCodecs.SMILE, CacheCodecs.SMILE.encode(product("x")), 0);
+
+        byte[] newerVersion = entry.clone();
+        newerVersion[1] = CacheEnvelope.VERSION + 1;
+        assertNull(CacheEnvelope.unwrapAs(newerVersion, CacheCodecs.SMILE, Product.class));
+
+        byte[] unknownCodec = entry.clone();
+        unknownCodec[2] = 99;
+        assertNull(CacheEnvelope.unwrapAs(unknownCodec, CacheCodecs.SMILE, Product.class));
+
+        byte[] plainJson = "{\"id\":7}".getBytes(StandardCharsets.UTF_8);
+        assertNull(CacheEnvelope.unwrapAs(plainJson, CacheCodecs.JSON, Product.class));
+        assertNull(CacheEnvelope.unwrapAs(new byte[]{CacheEnvelope.MAGIC}, CacheCodecs.JSON, Product.class));
+    }
+
+    @Test
+    void transcodesToTheRequestedCodec() throws Exception {
+        Product product = product("repetitive ".repeat(200));
+        byte[] entry = CacheEnvelope.wrap(CacheCodecs.SMILE, CacheCodecs.SMILE.encode(product), 1);
+
+        byte[] cbor = CacheEnvelope.unwrapAs(entry, CacheCodecs.CBOR, Product.class);
+        assertSameProduct(product, CacheCodecs.CBOR.decode(cbor, Product.class));
+        byte[] json = CacheEnvelope.unwrapAs(entry, CacheCodecs.JSON, Product.class);
+        assertSameProduct(product, CacheCodecs.JSON.decode(json, Product.class));
+    }
+}
@@ -0,0 +1,86 @@
+package com.fuzfriend.productsapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/** The shared generation counter must never hand out a generation this instance has already seen. */
+class CacheServiceGenerationTest {
+    private static final String KEY = "Products:Generation";
+
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, byte[]> redis = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, byte[]> ops = mock(ValueOperations.class);
+    private CacheService cache;
+
+    @BeforeEach
+    void redisCounter() {
+        when(redis.opsForValue()).thenReturn(ops);
+        // refresh interval 0: every call reads the counter
+        cache = new CacheService(3600, 1024, 100, 128, 200, 10, 64, 2, 0, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "redisTemplate", redis);
+    }
+
+    private void counterIs(Long value) {
+        when(ops.get(KEY)).thenReturn(value == null ? null : value.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void followsACounterThatMovesForward() {
+        counterIs(3L);
+        assertEquals(3, cache.currentGeneration());
+        counterIs(5L);
+        assertEquals(5, cache.currentGeneration());
+        verify(ops, never()).increment(anyString(), anyLong());
+    }
+
+    @Test
+    void counterThatWentBackIsReseededAboveTheLastSeenGeneration() {
+        counterIs(7L);
+        assertEquals(7, cache.currentGeneration());
+
+        counterIs(null); // FLUSHALL, restart without persistence, or the key was evicted
+        when(ops.increment(KEY, 8L)).thenReturn(8L);
+        assertEquals(8, cache.currentGeneration());
+        verify(ops).increment(KEY, 8L);
+    }
+
+    @Test
+    void bumpAfterAResetSkipsPastTheLastSeenGeneration() {
+        counterIs(7L);
+        cache.currentGeneration();
+
+        when(ops.increment(KEY)).thenReturn(1L);
+        when(ops.increment(KEY, 7L)).thenReturn(8L);
+        assertEquals(8, cache.bumpGeneration());
+
+        when(ops.increment(KEY)).thenReturn(9L);
+        assertEquals(9, cache.bumpGeneration());
+    }
+
+    @Test
+    void concurrentReseedByAnotherInstanceOnlyMovesTheCounterFurther() {
+        counterIs(7L);
+        cache.currentGeneration();
+
+        counterIs(2L);
+        when(ops.increment(KEY, 6L)).thenReturn(12L); // another instance re-seeded first
+        assertEquals(12, cache.currentGeneration());
+        counterIs(12L);
+        assertEquals(12, cache.currentGeneration());
+    }
+}
@@ -0,0 +1,71 @@
+package com.fuzfriend.productsapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/** Local copies of hot keys must not outlive the key's promotion or their own expiry. */
+class CacheServiceLocalCopyTest {
+    @SuppressWarnings("unchecked")
+    private final RedisTemplate<String, byte[]> redis = mock(RedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, byte[]> ops = mock(ValueOperations.class);
+
+    private CacheService newCache(int windowSeconds, int localTtlSeconds) {
+        when(redis.opsForValue()).thenReturn(ops);
+        // threshold 1: every key is promoted on its first access
+        CacheService cache = new CacheService(3600, 1024, 100, 128, 1, windowSeconds, 64, localTtlSeconds, 1000,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "redisTemplate", redis);
+        return cache;
+    }
+
+    private static byte[] entry() throws Exception {
+        return CacheEnvelope.wrap(CacheCodecs.JSON, "1".getBytes(StandardCharsets.UTF_8), 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, ?> localCopies(CacheService cache) {
+        return (Map<String, ?>) ReflectionTestUtils.getField(cache, "localCopies");
+    }
+
+    @Test
+    void demotionDuringTheRedisReadLeavesNoCopyBehind() throws Exception {
+        CacheService cache = newCache(3600, 60);
+        HotKeyTracker tracker = (HotKeyTracker) ReflectionTestUtils.getField(cache, "hotKeys");
+        byte[] value = entry();
+        when(ops.get("k")).thenAnswer(inv -> {
+            // another thread's decay demotes the key while this one waits on Redis
+            ((Map<?, ?>) ReflectionTestUtils.getField(tracker, "hotKeys")).remove("k");
+            localCopies(cache).remove("k");
+            return value;
+        });
+
+        assertNotNull(cache.getEncoded("k", CacheCodecs.JSON, Integer.class));
+        assertFalse(tracker.isHot("k"));
+        assertFalse(localCopies(cache).containsKey("k"));
+    }
+
+    @Test
+    void decaySweepsExpiredCopies() throws Exception {
+        CacheService cache = newCache(0, 0); // every access starts a new window; copies expire at once
+        when(ops.get(anyString())).thenReturn(entry());
+
+        cache.getEncoded("k", CacheCodecs.JSON, Integer.class);
+        assertTrue(localCopies(cache).containsKey("k"));
+        cache.getEncoded("other", CacheCodecs.JSON, Integer.class);
+        assertFalse(localCopies(cache).containsKey("k"));
+    }
+}
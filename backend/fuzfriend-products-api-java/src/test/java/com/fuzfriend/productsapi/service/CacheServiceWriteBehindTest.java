@@ -0,0 +1,105 @@
+package com.fuzfriend.productsapi.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * The writer thread is never started here, so the queue stays full and every write races between
+ * coalescing and being dropped.
+ */
+class CacheServiceWriteBehindTest {
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 500;
+    private static final int KEYS = 16;
+
+    @Test
+    void fullQueueNeverStrandsAPendingWrite() throws Exception {
+        for (int round = 0; round < 50; round++) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            CacheService cache = newCache(4, registry);
+            hammer(cache);
+
+            Map<String, byte[]> pending = pendingWrites(cache);
+            Queue<String> queued = writeQueue(cache);
+            assertEquals(new HashSet<>(queued), pending.keySet(), "every pending write must be queued exactly once");
+            assertEquals(queued.size(), pending.size());
+
+            double coalesced = registry.get("cache.write.coalesced").counter().count();
+            double dropped = registry.get("cache.write.dropped").counter().count();
+            assertEquals(THREADS * WRITES_PER_THREAD, (long) (coalesced + dropped) + queued.size());
+        }
+    }
+
+    @Test
+    void keyIsQueuedAgainOnceItsPendingWriteIsFlushed() throws Exception {
+        CacheService cache = newCache(4, new SimpleMeterRegistry());
+        hammer(cache);
+
+        Queue<String> queued = writeQueue(cache);
+        List<String> drained = new ArrayList<>(queued);
+        queued.clear();
+        ReflectionTestUtils.invokeMethod(cache, "flush", drained);
+        assertTrue(pendingWrites(cache).isEmpty());
+
+        cache.setEncodedAsync("k0", CacheCodecs.JSON, body(1));
+        assertEquals(1, queued.size());
+        assertTrue(pendingWrites(cache).containsKey("k0"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static CacheService newCache(int queueCapacity, SimpleMeterRegistry registry) {
+        CacheService cache = new CacheService(3600, 1024, queueCapacity, 128,
+                200, 10, 64, 2, 1000, registry);
+        ReflectionTestUtils.setField(cache, "redisTemplate", mock(RedisTemplate.class));
+        return cache;
+    }
+
+    private static void hammer(CacheService cache) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                    cache.setEncodedAsync("k" + (i % KEYS), CacheCodecs.JSON, body(thread * WRITES_PER_THREAD + i));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    private static byte[] body(int n) {
+        return Integer.toString(n).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, byte[]> pendingWrites(CacheService cache) {
+        return (Map<String, byte[]>) ReflectionTestUtils.getField(cache, "pendingWrites");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Queue<String> writeQueue(CacheService cache) {
+        return (Queue<String>) ReflectionTestUtils.getField(cache, "writeQueue");
+    }
+}
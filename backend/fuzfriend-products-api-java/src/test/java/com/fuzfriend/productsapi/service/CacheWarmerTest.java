@@ -0,0 +1,115 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import com.fuzfriend.productsapi.dto.ProductResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheWarmerTest {
+
+    @TempDir
+    Path dir;
+
+    private ProductService service;
+    private CacheService cache;
+    private QueryLog queryLog;
+
+    @BeforeEach
+    void setUp() {
+        service = mock(ProductService.class);
+        when(service.getProducts(any())).thenReturn(new ProductResponse());
+        cache = new CacheService(3600, 1024, 100, 128, 200, 10, 64, 2, 1000, new SimpleMeterRegistry());
+        queryLog = new QueryLog(true, 1.0, 100, dir.resolve("query-log.json").toString());
+        for (int i = 0; i < 5; i++) {
+            ProductQueryDto q = new ProductQueryDto();
+            q.setCategory("c" + i);
+            queryLog.record(QueryLog.Kind.SEARCH, q, CacheCodecs.JSON);
+        }
+        queryLog.record(QueryLog.Kind.COUNT, null, CacheCodecs.SMILE);
+    }
+
+    private CacheWarmer warmer(double queriesPerSecond, boolean readinessGate) {
+        return new CacheWarmer(service, cache, queryLog, true, 200, queriesPerSecond, readinessGate, 0.8);
+    }
+
+    private static Health awaitIdle(CacheWarmer warmer) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            Health health = warmer.health();
+            if (Boolean.FALSE.equals(health.getDetails().get("running"))) return health;
+            Thread.sleep(10);
+        }
+        fail("warm-up did not finish");
+        return null;
+    }
+
+    @Test
+    void readinessGateOpensOnceTheLoggedQueriesAreWarmed() throws Exception {
+        CacheWarmer warmer = warmer(1000, true);
+        assertEquals(Status.OUT_OF_SERVICE, warmer.health().getStatus());
+
+        warmer.onStartup();
+        Health health = awaitIdle(warmer);
+        assertEquals(Status.UP, health.getStatus());
+        assertEquals(6, health.getDetails().get("loaded"));
+        assertTrue(cache.exists(ProductCacheKeys.withFormat(ProductCacheKeys.count(0), CacheCodecs.SMILE)));
+    }
+
+    @Test
+    void skipsQueriesThatAreAlreadyCached() throws Exception {
+        CacheWarmer warmer = warmer(1000, false);
+        warmer.onStartup();
+        awaitIdle(warmer);
+        warmer.trigger();
+        Health health = awaitIdle(warmer);
+        assertEquals(0, health.getDetails().get("loaded"));
+        verify(service, times(6)).getProducts(any());
+    }
+
+    @Test
+    void catalogChangeWarmsTheNewGeneration() throws Exception {
+        CacheWarmer warmer = warmer(1000, false);
+        warmer.onStartup();
+        awaitIdle(warmer);
+
+        long generation = cache.bumpGeneration();
+        warmer.onCatalogChanged();
+        Health health = awaitIdle(warmer);
+        assertEquals(6, health.getDetails().get("loaded"));
+        assertTrue(cache.exists(ProductCacheKeys.count(generation) + ";fmt=smile"));
+    }
+
+    @Test
+    void databaseLoadIsPacedToTheConfiguredRate() throws Exception {
+        CacheWarmer warmer = warmer(20, false);
+        long started = System.nanoTime();
+        warmer.onStartup();
+        awaitIdle(warmer);
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+        // six loads at 20/s need at least five 50 ms gaps
+        assertTrue(elapsedMs >= 240, "warm-up took only " + elapsedMs + " ms");
+    }
+
+    @Test
+    void disabledWarmerNeverHoldsReadiness() {
+        CacheWarmer warmer = new CacheWarmer(service, cache, queryLog, false, 200, 5, true, 0.8);
+        warmer.onStartup();
+        assertEquals(Status.UP, warmer.health().getStatus());
+        verify(service, times(0)).getProducts(any());
+    }
+}
@@ -0,0 +1,198 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.FilterOptions;
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import com.fuzfriend.productsapi.dto.ProductResponse;
+import com.fuzfriend.productsapi.model.Product;
+import com.fuzfriend.productsapi.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The summary replaced the count, group-by, min/max, ratings and promotion queries for searches without
+ * free text or ids. For a spread of filter combinations it must give exactly what those queries give.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({FacetSummary.class, FacetSummaryListener.class})
+class FacetSummaryConsistencyTest {
+    private static final String[] CATEGORIES = {"Smartphones", "Laptops", "Headphones", "Footwear", "Cameras"};
+    private static final String[] BRANDS = {"Apple", "Samsung", "Sony", "Nike", "Dell", "Canon"};
+    private static final String[] COLORS = {"Black", "White", "Blue", "Red", null};
+    private static final String[] SIZES = {"Small", "Medium", "Large", "128GB", null, "XL", "42"};
+
+    // Generation 0 throughout, so the summary always counts as current.
+    @MockBean
+    private CacheService cache;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private FacetSummary summary;
+
+    @Autowired
+    private EntityManager em;
+
+    private ProductService summarized;
+    private ProductService live;
+
+    private static List<Product> catalog() {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Product p = new Product();
+            p.setTitle("Product " + i);
+            p.setDescription("Description " + i);
+            p.setBrand(BRANDS[i % BRANDS.length]);
+            p.setCategory(CATEGORIES[(i / 3) % CATEGORIES.length]);
+            p.setColor(COLORS[i % COLORS.length]);
+            p.setSize(SIZES[(i * 3) % SIZES.length]);
+            p.setPrice(BigDecimal.valueOf(500 + (i * 37) % 1500, 2)); // repeated prices across cells
+            p.setRating(1.0 + (i % 41) / 10.0);
+            p.setOnPromotion(i % 7 == 0);
+            products.add(p);
+        }
+        return products;
+    }
+
+    @BeforeEach
+    void seed() {
+        repository.saveAll(catalog());
+        repository.flush();
+        summary.rebuild(); // reads the rows inserted in this (rolled back) test transaction
+
+        summarized = new ProductService(repository, summary);
+        live = new ProductService(repository, new FacetSummary(repository, cache)); // never built, so always live
+        ReflectionTestUtils.setField(summarized, "em", em);
+        ReflectionTestUtils.setField(live, "em", em);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll(); // only commits in the NOT_SUPPORTED tests; otherwise rolled back anyway
+    }
+
+    private static Arguments combo(String name, Consumer<ProductQueryDto> filters) {
+        ProductQueryDto q = new ProductQueryDto();
+        filters.accept(q);
+        return Arguments.of(name, q);
+    }
+
+    static Stream<Arguments> filterCombinations() {
+        return Stream.of(
+                combo("no filters", q -> {}),
+                combo("one category", q -> q.setCategory("Laptops")),
+                combo("two categories", q -> q.setCategories(List.of("Laptops", "Cameras"))),
+                combo("category and brand", q -> { q.setCategories(List.of("Laptops")); q.setBrands(List.of("Sony", "Dell")); }),
+                combo("colour", q -> q.setColours(List.of("Blue"))),
+                combo("colour and size", q -> { q.setColours(List.of("Black", "Red")); q.setSizes(List.of("XL", "128GB")); }),
+                combo("price range", q -> { q.setMinPrice(new BigDecimal("7.50")); q.setMaxPrice(new BigDecimal("12.00")); }),
+                combo("min price only", q -> q.setMinPrice(new BigDecimal("15.00"))),
+                combo("whole-number min rating", q -> q.setMinRating(4.0)),
+                combo("on promotion", q -> q.setOnPromotion(true)),
+                combo("not on promotion, brand", q -> { q.setOnPromotion(false); q.setBrands(List.of("Apple")); }),
+                combo("everything", q -> {
+                    q.setCategories(List.of("Smartphones", "Headphones"));
+                    q.setBrands(List.of("Apple", "Samsung", "Sony"));
+                    q.setColours(List.of("Black", "White"));
+                    q.setMinPrice(new BigDecimal("6.00"));
+                    q.setMaxPrice(new BigDecimal("18.00"));
+                    q.setMinRating(3.0);
+                }),
+                combo("no matches", q -> { q.setCategory("Laptops"); q.setBrands(List.of("Nike")); q.setSizes(List.of("42")); })
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("filterCombinations")
+    void summaryMatchesTheLiveQueries(String name, ProductQueryDto query) {
+        assertTrue(summary.summarize(null, null, null, null, null, null, null, null).isPresent());
+        assertSameCountsAndFacets(live.getProducts(query), summarized.getProducts(query));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void committedWritesReachTheSummaryThroughTheOrmXmlListener() {
+        // runs outside the test transaction so after-commit callbacks fire; clean up what it commits
+        summary.rebuild();
+        long before = summary.summarize(null, null, null, null, null, null, null, null).orElseThrow().totalCount();
+        Product p = catalog().get(0);
+        p.setCategory("Drones");
+        Product saved = repository.save(p);
+        try {
+            assertEquals(1, summary.summarize(List.of("Drones"), null, null, null, null, null, null, null)
+                    .orElseThrow().totalCount());
+
+            saved.setCategory("Gliders");
+            saved = repository.save(saved);
+            assertEquals(0, summary.summarize(List.of("Drones"), null, null, null, null, null, null, null)
+                    .orElseThrow().totalCount());
+            assertEquals(1, summary.summarize(List.of("Gliders"), null, null, null, null, null, null, null)
+                    .orElseThrow().totalCount());
+        } finally {
+            repository.deleteById(saved.getId());
+        }
+        assertEquals(before, summary.summarize(null, null, null, null, null, null, null, null).orElseThrow().totalCount());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void committedPriceIsSummarizedAsStored() {
+        summary.rebuild();
+        Product p = catalog().get(0);
+        p.setCategory("Drones");
+        p.setPrice(new BigDecimal("99.999")); // NUMERIC(12, 2) stores 100.00
+        repository.save(p);
+
+        ProductQueryDto drones = new ProductQueryDto();
+        drones.setCategory("Drones");
+        assertSameCountsAndFacets(live.getProducts(drones), summarized.getProducts(drones));
+        assertEquals(0, new BigDecimal("100.00").compareTo(summarized.getProducts(drones).getFilters().getMinPrice()));
+
+        drones.setMinPrice(new BigDecimal("100.00"));
+        assertEquals(1, live.getProducts(drones).getTotalCount());
+        assertSameCountsAndFacets(live.getProducts(drones), summarized.getProducts(drones));
+    }
+
+    private static void assertSameCountsAndFacets(ProductResponse expected, ProductResponse actual) {
+        assertEquals(expected.getTotalCount(), actual.getTotalCount(), "totalCount");
+        FilterOptions e = expected.getFilters();
+        FilterOptions a = actual.getFilters();
+        assertEquals(e.getCategoryCounts(), a.getCategoryCounts(), "categoryCounts");
+        assertEquals(e.getBrandCounts(), a.getBrandCounts(), "brandCounts");
+        assertEquals(e.getColourCounts(), a.getColourCounts(), "colourCounts");
+        assertEquals(e.getSizeCounts(), a.getSizeCounts(), "sizeCounts");
+        assertEquals(e.getCategories(), a.getCategories(), "categories");
+        assertEquals(e.getBrands(), a.getBrands(), "brands");
+        assertEquals(e.getColours(), a.getColours(), "colours");
+        assertEquals(e.getSizes(), a.getSizes(), "sizes");
+        assertEquals(0, e.getMinPrice().compareTo(a.getMinPrice()), "minPrice " + e.getMinPrice() + " vs " + a.getMinPrice());
+        assertEquals(0, e.getMaxPrice().compareTo(a.getMaxPrice()), "maxPrice " + e.getMaxPrice() + " vs " + a.getMaxPrice());
+        assertEquals(e.getRatings(), a.getRatings(), "ratings");
+        assertEquals(e.isHasPromotions(), a.isHasPromotions(), "hasPromotions");
+    }
+}
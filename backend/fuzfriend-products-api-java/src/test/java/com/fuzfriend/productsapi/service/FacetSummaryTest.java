@@ -0,0 +1,188 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Changes that commit while a rebuild is reading must end up counted exactly once, and the summary must
+ * not answer for a catalog generation whose changes it hasn't seen.
+ */
+class FacetSummaryTest {
+    private final ProductRepository repository = mock(ProductRepository.class);
+    private final CacheService cache = mock(CacheService.class);
+    private final AtomicLong generation = new AtomicLong();
+    private final FacetSummary summary = new FacetSummary(repository, cache);
+
+    @BeforeEach
+    void sharedGeneration() {
+        when(cache.currentGeneration()).thenAnswer(inv -> generation.get());
+    }
+
+    private void bumpedHere() {
+        summary.onCatalogChanged(new CatalogChangedEvent(this, generation.incrementAndGet()));
+    }
+
+    private static FacetSummary.Row row(String category, String price) {
+        return new FacetSummary.Row(category, "Sony", "Black", "M", false, 4, new BigDecimal(price));
+    }
+
+    private static Object[] dbRow(int id, FacetSummary.Row r) {
+        return new Object[]{id, r.category(), r.brand(), r.color(), r.size(), r.onPromotion(),
+                (double) r.ratingFloor(), r.price()};
+    }
+
+    private Map<String, Integer> categoryCounts() {
+        return summary.summarize(null, null, null, null, null, null, null, null).orElseThrow()
+                .filters().getCategoryCounts();
+    }
+
+    private long total() {
+        return summary.summarize(null, null, null, null, null, null, null, null).orElseThrow().totalCount();
+    }
+
+    @Test
+    void changeCommittedAfterTheReadIsReplayedOntoTheRebuild() {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(dbRow(1, row("Laptops", "10.00")));
+        when(repository.findFacetRows()).thenAnswer(inv -> {
+            List<Object[]> snapshot = new ArrayList<>(rows);
+            summary.apply(2, row("Cameras", "20.00")); // commits after the read saw the table
+            summary.apply(1, row("Phones", "10.00"));
+            return snapshot;
+        });
+
+        summary.rebuild();
+        assertEquals(Map.of("Cameras", 1, "Phones", 1), categoryCounts());
+        assertEquals(2, total());
+    }
+
+    @Test
+    void changeAlreadyInTheReadIsNotCountedTwice() {
+        when(repository.findFacetRows()).thenAnswer(inv -> {
+            // committed before the read, but its after-commit callback runs during the build
+            summary.apply(1, row("Laptops", "10.00"));
+            summary.apply(2, null);
+            return List.<Object[]>of(dbRow(1, row("Laptops", "10.00")), dbRow(3, row("Cameras", "5.00")));
+        });
+
+        summary.rebuild();
+        assertEquals(Map.of("Laptops", 1, "Cameras", 1), categoryCounts());
+        assertEquals(2, total());
+    }
+
+    @Test
+    void changesDuringAPeriodicRebuildAreKept() {
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        when(repository.findFacetRows()).thenAnswer(inv -> {
+            summary.apply(2, row("Cameras", "20.00"));
+            return List.<Object[]>of(dbRow(1, row("Laptops", "10.00")));
+        });
+        summary.rebuild();
+        assertEquals(Map.of("Laptops", 1, "Cameras", 1), categoryCounts());
+
+        summary.apply(2, null);
+        summary.apply(2, null);
+        assertEquals(Map.of("Laptops", 1), categoryCounts());
+    }
+
+    @Test
+    void updateMovesTheProductBetweenCellsAndPriceBuckets() {
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        summary.apply(1, row("Laptops", "99.00"));
+        FacetSummary.Result result = summary.summarize(null, null, null, null, null, null, null, null).orElseThrow();
+        assertEquals(0, new BigDecimal("99.00").compareTo(result.filters().getMinPrice()));
+        assertEquals(1, result.totalCount());
+        assertTrue(summary.summarize(null, null, null, null, null, new BigDecimal("50"), null, null)
+                .orElseThrow().filters().getCategoryCounts().isEmpty());
+    }
+
+    @Test
+    void bumpByAnotherInstanceBypassesTheSummaryUntilItIsRebuilt() {
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        // another instance inserted a product and bumped the shared generation; no listener saw the insert
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00")),
+                dbRow(2, row("Cameras", "20.00"))));
+        generation.incrementAndGet();
+        assertTrue(summary.summarize(null, null, null, null, null, null, null, null).isEmpty());
+
+        summary.followGeneration();
+        assertEquals(Map.of("Laptops", 1, "Cameras", 1), categoryCounts());
+    }
+
+    @Test
+    void ownBumpRightAfterTheSummarysGenerationNeedsNoRebuild() {
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        summary.apply(2, row("Cameras", "20.00"));
+        bumpedHere();
+        summary.followGeneration();
+        assertEquals(Map.of("Laptops", 1, "Cameras", 1), categoryCounts());
+        verify(repository, times(1)).findFacetRows();
+    }
+
+    @Test
+    void ownBumpAfterAnotherInstancesBumpStillNeedsARebuild() {
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        generation.incrementAndGet(); // another instance
+        summary.apply(2, row("Cameras", "20.00"));
+        bumpedHere();
+        assertTrue(summary.summarize(null, null, null, null, null, null, null, null).isEmpty());
+    }
+
+    @Test
+    void ownBumpDuringARebuildIsCaughtUpByTheNextCheck() {
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        when(repository.findFacetRows()).thenAnswer(inv -> {
+            summary.apply(2, row("Cameras", "20.00"));
+            bumpedHere();
+            return List.<Object[]>of(dbRow(1, row("Laptops", "10.00")));
+        });
+        summary.rebuild(); // labelled with the generation it read before the bump
+        assertTrue(summary.summarize(null, null, null, null, null, null, null, null).isEmpty());
+
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00")),
+                dbRow(2, row("Cameras", "20.00"))));
+        summary.followGeneration();
+        assertEquals(Map.of("Laptops", 1, "Cameras", 1), categoryCounts());
+    }
+
+    @Test
+    void generationThatWentBackIsNotTrusted() {
+        generation.set(5);
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00"))));
+        summary.rebuild();
+
+        generation.set(1); // the counter was reset, and other instances wrote since
+        when(repository.findFacetRows()).thenReturn(List.<Object[]>of(dbRow(1, row("Laptops", "10.00")),
+                dbRow(2, row("Cameras", "20.00"))));
+        assertTrue(summary.summarize(null, null, null, null, null, null, null, null).isEmpty());
+
+        summary.followGeneration();
+        assertEquals(Map.of("Laptops", 1, "Cameras", 1), categoryCounts());
+    }
+}
@@ -0,0 +1,127 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.HotKeyStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HotKeyTrackerTest {
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<String> demoted = new ArrayList<>();
+    private final AtomicInteger decays = new AtomicInteger();
+
+    private HotKeyTracker tracker(long threshold, int maxHotKeys) {
+        return new HotKeyTracker(4096, threshold, maxHotKeys, WINDOW, demoted::add, decays::incrementAndGet,
+                clock::get);
+    }
+
+    private static void access(HotKeyTracker tracker, String key, int times) {
+        for (int i = 0; i < times; i++) tracker.recordAccess(key);
+    }
+
+    @Test
+    void promotesOnceTheEstimateReachesTheThreshold() {
+        HotKeyTracker tracker = tracker(10, 64);
+        access(tracker, "k", 9);
+        assertFalse(tracker.isHot("k"));
+        assertTrue(tracker.recordAccess("k"));
+        assertTrue(tracker.isHot("k"));
+    }
+
+    @Test
+    void demotesOnlyWhenADecayLeavesTheKeyBelowHalfTheThreshold() {
+        HotKeyTracker tracker = tracker(10, 64);
+        access(tracker, "k", 10);
+
+        clock.addAndGet(WINDOW);
+        tracker.recordAccess("other"); // triggers the decay: 10 -> 5, still at half the threshold
+        assertTrue(tracker.isHot("k"));
+        assertTrue(demoted.isEmpty());
+
+        clock.addAndGet(WINDOW);
+        tracker.recordAccess("other"); // 5 -> 2
+        assertFalse(tracker.isHot("k"));
+        assertEquals(List.of("k"), demoted);
+    }
+
+    @Test
+    void keyIsNoLongerHotWhenItsDemotionRunsAndEveryDecayIsReported() {
+        List<Boolean> hotWhenDemoted = new ArrayList<>();
+        HotKeyTracker[] holder = new HotKeyTracker[1];
+        holder[0] = new HotKeyTracker(4096, 10, 64, WINDOW, key -> hotWhenDemoted.add(holder[0].isHot(key)),
+                decays::incrementAndGet, clock::get);
+        access(holder[0], "k", 10);
+        assertEquals(0, decays.get());
+
+        for (int window = 1; window <= 2; window++) {
+            clock.addAndGet(WINDOW);
+            holder[0].recordAccess("other");
+            assertEquals(window, decays.get());
+        }
+        assertEquals(List.of(false), hotWhenDemoted);
+    }
+
+    @Test
+    void keepsPromotedKeysWhileTrafficContinues() {
+        HotKeyTracker tracker = tracker(10, 64);
+        for (int window = 0; window < 5; window++) {
+            access(tracker, "k", 10);
+            clock.addAndGet(WINDOW);
+        }
+        tracker.recordAccess("k");
+        assertTrue(tracker.isHot("k"));
+        assertTrue(demoted.isEmpty());
+    }
+
+    @Test
+    void capsTheNumberOfPromotedKeys() {
+        HotKeyTracker tracker = tracker(5, 2);
+        access(tracker, "a", 5);
+        access(tracker, "b", 5);
+        access(tracker, "c", 5);
+        assertEquals(2, tracker.size());
+        assertFalse(tracker.isHot("c"));
+    }
+
+    @Test
+    void reportsLocalHitRateForPromotedKeys() {
+        HotKeyTracker tracker = tracker(4, 64);
+        access(tracker, "k", 3);
+        for (int i = 0; i < 8; i++) {
+            tracker.recordAccess("k"); // the first of these promotes, so all 8 count as lookups
+            if (i % 2 == 0) tracker.recordLocalHit("k");
+        }
+
+        HotKeyStats stats = tracker.snapshot().get(0);
+        assertEquals("k", stats.getKey());
+        assertEquals(8, stats.getLookups());
+        assertEquals(4, stats.getLocalHits());
+        assertEquals(0.5, stats.getLocalHitRate(), 1e-9);
+        assertTrue(stats.getEstimatedFrequency() >= 11);
+    }
+
+    @Test
+    void keysWithEqualStringHashCodesAreCountedSeparately() {
+        assertEquals("Aa".hashCode(), "BB".hashCode());
+        HotKeyTracker tracker = tracker(100, 64);
+        access(tracker, "Aa", 100);
+        assertTrue(tracker.isHot("Aa"));
+        assertFalse(tracker.recordAccess("BB"));
+    }
+
+    @Test
+    void hashMatchesMurmur3ReferenceVectors() {
+        assertEquals(0xcbd8a7b341bd9b02L, HotKeyTracker.hash64("hello"));
+        assertEquals(0xe34bbc7bbc071b6cL, HotKeyTracker.hash64("The quick brown fox jumps over the lazy dog"));
+    }
+}
@@ -0,0 +1,141 @@
+package com.fuzfriend.productsapi.service;
+
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryLogTest {
+
+    @TempDir
+    Path dir;
+
+    private QueryLog newLog(int maxEntries) {
+        return new QueryLog(true, 1.0, maxEntries, dir.resolve("logs/query-log.json").toString());
+    }
+
+    private static ProductQueryDto search(String category) {
+        ProductQueryDto q = new ProductQueryDto();
+        q.setCategory(category);
+        return q;
+    }
+
+    private static void record(QueryLog log, QueryLog.Kind kind, ProductQueryDto q, CacheCodec codec, int times) {
+        for (int i = 0; i < times; i++) log.record(kind, q, codec);
+    }
+
+    @Test
+    void topReturnsTheMostFrequentQueriesFirst() {
+        QueryLog log = newLog(100);
+        record(log, QueryLog.Kind.SEARCH, search("Laptops"), CacheCodecs.JSON, 3);
+        record(log, QueryLog.Kind.SEARCH, search("Cameras"), CacheCodecs.JSON, 7);
+        record(log, QueryLog.Kind.COUNT, null, CacheCodecs.JSON, 5);
+        record(log, QueryLog.Kind.SEARCH, search("Cameras"), CacheCodecs.SMILE, 1);
+
+        List<QueryLog.Entry> top = log.top(3);
+        assertEquals(3, top.size());
+        assertEquals(List.of(7L, 5L, 3L), top.stream().map(QueryLog.Entry::getCount).toList());
+        assertEquals("Cameras", top.get(0).getQuery().getCategory());
+        assertEquals(QueryLog.Kind.COUNT, top.get(1).getKind());
+    }
+
+    @Test
+    void formatsAreLoggedSeparately() {
+        QueryLog log = newLog(100);
+        record(log, QueryLog.Kind.SEARCH, search("Cameras"), CacheCodecs.JSON, 2);
+        record(log, QueryLog.Kind.SEARCH, search("Cameras"), CacheCodecs.CBOR, 1);
+        assertEquals(2, log.top(10).size());
+    }
+
+    @Test
+    void trimsToHalfTheLimitKeepingTheMostFrequent() {
+        QueryLog log = newLog(4);
+        for (int i = 1; i <= 4; i++) record(log, QueryLog.Kind.SEARCH, search("c" + i), CacheCodecs.JSON, i * 10);
+        record(log, QueryLog.Kind.SEARCH, search("new"), CacheCodecs.JSON, 1);
+
+        List<String> kept = log.top(10).stream().map(e -> e.getQuery().getCategory()).toList();
+        assertEquals(List.of("c4", "c3"), kept);
+    }
+
+    @Test
+    void decayHalvesCountsAndForgetsQueriesThatReachZero() {
+        QueryLog log = newLog(100);
+        record(log, QueryLog.Kind.SEARCH, search("Laptops"), CacheCodecs.JSON, 9);
+        record(log, QueryLog.Kind.SEARCH, search("Cameras"), CacheCodecs.JSON, 1);
+
+        log.persistAndDecay();
+        List<QueryLog.Entry> top = log.top(10);
+        assertEquals(1, top.size());
+        assertEquals(4, top.get(0).getCount());
+
+        log.persistAndDecay();
+        log.persistAndDecay();
+        log.persistAndDecay();
+        assertTrue(log.top(10).isEmpty());
+    }
+
+    @Test
+    void persistedLogIsReloadedByANewInstance() {
+        QueryLog log = newLog(100);
+        record(log, QueryLog.Kind.SEARCH, search("Laptops"), CacheCodecs.SMILE, 6);
+        ProductQueryDto page = new ProductQueryDto();
+        page.setPage(3);
+        page.setPageSize(20);
+        record(log, QueryLog.Kind.PAGE, page, CacheCodecs.JSON, 2);
+
+        log.persistAndDecay(); // saves the counts as they were, then halves them in memory
+        assertTrue(Files.exists(dir.resolve("logs/query-log.json")));
+
+        QueryLog reloaded = newLog(100);
+        reloaded.load();
+        List<QueryLog.Entry> top = reloaded.top(10);
+        assertEquals(2, top.size());
+        assertEquals(QueryLog.Kind.SEARCH, top.get(0).getKind());
+        assertEquals("smile", top.get(0).getCodec());
+        assertEquals("Laptops", top.get(0).getQuery().getCategory());
+        assertEquals(6, top.get(0).getCount());
+        assertEquals(QueryLog.Kind.PAGE, top.get(1).getKind());
+        assertEquals(3, top.get(1).getQuery().getPage());
+
+        // a reloaded entry keeps accumulating under the same identity
+        reloaded.record(QueryLog.Kind.SEARCH, search("Laptops"), CacheCodecs.SMILE);
+        assertEquals(7, reloaded.top(1).get(0).getCount());
+    }
+
+    @Test
+    void disabledLogNeitherRecordsNorReadsNorWrites() throws Exception {
+        QueryLog enabled = newLog(100);
+        record(enabled, QueryLog.Kind.SEARCH, search("Laptops"), CacheCodecs.JSON, 3);
+        enabled.persist();
+        Path file = dir.resolve("logs/query-log.json");
+        String saved = Files.readString(file);
+
+        QueryLog disabled = new QueryLog(false, 1.0, 100, file.toString());
+        disabled.load();
+        assertTrue(disabled.top(10).isEmpty());
+        record(disabled, QueryLog.Kind.SEARCH, search("Cameras"), CacheCodecs.JSON, 3);
+        assertTrue(disabled.top(10).isEmpty());
+        disabled.persistAndDecay();
+        assertEquals(saved, Files.readString(file));
+    }
+
+    @Test
+    void missingOrUnreadableFileStartsEmpty() throws Exception {
+        QueryLog log = newLog(100);
+        log.load();
+        assertTrue(log.top(10).isEmpty());
+
+        Files.createDirectories(dir.resolve("logs"));
+        Files.writeString(dir.resolve("logs/query-log.json"), "not json");
+        QueryLog corrupt = newLog(100);
+        corrupt.load();
+        assertFalse(corrupt.top(10).iterator().hasNext());
+    }
+}
@@ -0,0 +1,90 @@
+package com.fuzfriend.productsapi.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters for one endpoint. Latencies are recorded in microseconds, for
+ * successful responses only: a timeout or a fast 503 would otherwise pass for a slow or a fast success.
+ * Failures are counted by kind instead.
+ */
+public class EndpointStats {
+    private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+    private final Histogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder connectionErrors = new LongAdder();
+    private final LongAdder clientErrors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public void record(long latencyNanos, int status, String cacheStatus) {
+        if (status >= 500) {
+            serverErrors.increment();
+            return;
+        }
+        if (status >= 400) {
+            clientErrors.increment();
+            return;
+        }
+        latency.recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+        if ("HIT".equals(cacheStatus)) hits.increment();
+        else if ("MISS".equals(cacheStatus)) misses.increment();
+    }
+
+    /** A request that got no response: it timed out, or the connection failed or was refused. */
+    public void recordFailure(Throwable error) {
+        if (error instanceof HttpTimeoutException) timeouts.increment();
+        else connectionErrors.increment();
+    }
+
+    public Map<String, Object> report(double measuredSeconds) {
+        Histogram h = latency.copy();
+        long lookups = hits.sum() + misses.sum();
+        long successes = h.getTotalCount();
+
+        Map<String, Object> failures = new LinkedHashMap<>();
+        failures.put("timeouts", timeouts.sum());
+        failures.put("connectionErrors", connectionErrors.sum());
+        failures.put("clientErrors", clientErrors.sum());
+        failures.put("serverErrors", serverErrors.sum());
+        long failed = failures.values().stream().mapToLong(v -> (Long) v).sum();
+
+        Map<String, Object> latencyMicros = new LinkedHashMap<>();
+        latencyMicros.put("p50", h.getValueAtPercentile(50));
+        latencyMicros.put("p95", h.getValueAtPercentile(95));
+        latencyMicros.put("p99", h.getValueAtPercentile(99));
+        latencyMicros.put("p99.9", h.getValueAtPercentile(99.9));
+        latencyMicros.put("max", h.getMaxValue());
+        latencyMicros.put("mean", h.getMean());
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("requests", successes + failed);
+        out.put("successes", successes);
+        out.put("failures", failures);
+        out.put("throughputPerSecond", successes / measuredSeconds);
+        out.put("cacheHitRatio", lookups == 0 ? null : (double) hits.sum() / lookups);
+        out.put("latencyMicros", latencyMicros);
+        out.put("histogram", encode(h));
+        return out;
+    }
+
+    /** Base64 of the compressed HdrHistogram encoding, readable by HdrHistogram tooling for plotting and diffs. */
+    private static String encode(Histogram h) {
+        ByteBuffer buffer = ByteBuffer.allocate(h.getNeededByteBufferCapacity());
+        int length = h.encodeIntoCompressedByteBuffer(buffer);
+        byte[] bytes = new byte[length];
+        buffer.flip();
+        buffer.get(bytes);
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -0,0 +1,151 @@
+package com.fuzfriend.productsapi.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fuzfriend.productsapi.FuzfriendProductsApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load test: requests are issued on a fixed arrival schedule regardless of how quickly earlier
+ * ones complete, each on its own virtual thread. Latency is measured from the scheduled start, so time spent
+ * queued behind a slow server counts against it instead of being hidden (no coordinated omission).
+ * Unless {@code --base-url} is given, the API is started in-process on an H2 database seeded with
+ * {@code --products} rows. The JSON report is written to {@code --out}, or stdout.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+
+        ConfigurableApplicationContext app = null;
+        String baseUrl = options.getBaseUrl();
+        if (baseUrl == null) {
+            app = startApi(options);
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port;
+        }
+
+        try {
+            Map<String, Object> report = run(options, baseUrl);
+            ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            if (options.getOut() == null) {
+                System.out.println(mapper.writeValueAsString(report));
+            } else {
+                mapper.writeValue(new File(options.getOut()), report);
+                System.err.println("Report written to " + options.getOut());
+            }
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startApi(LoadTestOptions options) {
+        return new SpringApplicationBuilder(FuzfriendProductsApiApplication.class)
+                .profiles("local")
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                        "app.seed.product-count=" + options.getProducts(),
+                        "app.cache.warmup.enabled=false",
+                        "logging.level.root=WARN")
+                .run();
+    }
+
+    private static Map<String, Object> run(LoadTestOptions options, String baseUrl) throws Exception {
+        int catalogSize = fetchProductCount(baseUrl);
+        Workload workload = new Workload(options, baseUrl, catalogSize);
+        Map<String, EndpointStats> stats = new LinkedHashMap<>();
+        for (String endpoint : workload.mix().keySet()) stats.put(endpoint, new EndpointStats());
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / options.getRate());
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(options.getWarmupSeconds());
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(options.getDurationSeconds());
+
+        // The client gets its own executor: it completes responses on it, and those must outlive the
+        // shutdown of the request executor below, which only waits for the senders.
+        try (ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(clientExecutor)
+                    .build();
+            for (long i = 0; ; i++) {
+                long scheduled = start + i * intervalNanos;
+                if (scheduled >= end) break;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+
+                Workload.Request request = workload.next();
+                EndpointStats endpoint = scheduled >= measureFrom ? stats.get(request.endpoint()) : null;
+                executor.submit(() -> {
+                    try {
+                        HttpResponse<Void> response = client.send(request.http(), HttpResponse.BodyHandlers.discarding());
+                        if (endpoint != null) {
+                            endpoint.record(System.nanoTime() - scheduled, response.statusCode(),
+                                    response.headers().firstValue("X-Cache-Status").orElse(null));
+                        }
+                    } catch (Exception e) {
+                        if (endpoint != null) endpoint.recordFailure(e);
+                    }
+                });
+            }
+        } // close() waits for in-flight requests
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("baseUrl", options.getBaseUrl() == null ? "in-process" : options.getBaseUrl());
+        config.put("products", catalogSize);
+        config.put("ratePerSecond", options.getRate());
+        config.put("durationSeconds", options.getDurationSeconds());
+        config.put("warmupSeconds", options.getWarmupSeconds());
+        if (options.getQueries() != null) config.put("queries", options.getQueries());
+        config.put("mix", workload.mix());
+        config.put("distinctQueries", workload.distinctQueries());
+        if (!workload.replaysQueryLog()) {
+            config.put("hotKeyFraction", options.getHotKeyFraction());
+            config.put("hotTrafficFraction", options.getHotTrafficFraction());
+        }
+        config.put("seed", options.getSeed());
+
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        stats.forEach((name, s) -> endpoints.put(name, s.report(options.getDurationSeconds())));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("timestamp", Instant.now().toString());
+        report.put("config", config);
+        report.put("endpoints", endpoints);
+        return report;
+    }
+
+    /** Reads the catalog size from the target, so by-id requests stay within existing ids even with --base-url. */
+    private static int fetchProductCount(String baseUrl) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/products/count"))
+                .header("Accept", "application/json")
+                .header("X-Bypass-Cache", "1")
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET /api/products/count returned " + response.statusCode());
+        }
+        return Integer.parseInt(response.body().trim());
+    }
+}
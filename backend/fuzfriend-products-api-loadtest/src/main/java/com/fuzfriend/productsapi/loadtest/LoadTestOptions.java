@@ -0,0 +1,73 @@
+package com.fuzfriend.productsapi.loadtest;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Command-line options, given as {@code --name=value}. */
+public class LoadTestOptions {
+    private int products = 10_000;
+    private double rate = 200;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private Map<String, Integer> mix = parseMix("search=60,page=20,count=5,byId=15");
+    private int distinctQueries = 500;
+    private double hotKeyFraction = 0.2;
+    private double hotTrafficFraction = 0.8;
+    private long seed = 42;
+    private String queries;
+    private String baseUrl;
+    private String out;
+
+    public static LoadTestOptions parse(String[] args) {
+        LoadTestOptions o = new LoadTestOptions();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got: " + arg);
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            switch (name) {
+                case "products" -> o.products = Integer.parseInt(value);
+                case "rate" -> o.rate = Double.parseDouble(value);
+                case "duration" -> o.durationSeconds = Integer.parseInt(value);
+                case "warmup" -> o.warmupSeconds = Integer.parseInt(value);
+                case "mix" -> o.mix = parseMix(value);
+                case "distinct-queries" -> o.distinctQueries = Integer.parseInt(value);
+                case "hot-key-fraction" -> o.hotKeyFraction = Double.parseDouble(value);
+                case "hot-traffic-fraction" -> o.hotTrafficFraction = Double.parseDouble(value);
+                case "seed" -> o.seed = Long.parseLong(value);
+                case "queries" -> o.queries = value;
+                case "base-url" -> o.baseUrl = value;
+                case "out" -> o.out = value;
+                default -> throw new IllegalArgumentException("Unknown option: --" + name);
+            }
+        }
+        return o;
+    }
+
+    private static Map<String, Integer> parseMix(String value) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            String[] kv = part.trim().split("=");
+            String endpoint = kv[0].trim();
+            if (!Workload.ENDPOINTS.contains(endpoint)) {
+                throw new IllegalArgumentException("Unknown endpoint in mix: " + endpoint + " (expected one of " + Workload.ENDPOINTS + ")");
+            }
+            mix.put(endpoint, Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    public int getProducts() { return products; }
+    public double getRate() { return rate; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public int getWarmupSeconds() { return warmupSeconds; }
+    public Map<String, Integer> getMix() { return mix; }
+    public int getDistinctQueries() { return distinctQueries; }
+    public double getHotKeyFraction() { return hotKeyFraction; }
+    public double getHotTrafficFraction() { return hotTrafficFraction; }
+    public long getSeed() { return seed; }
+    public String getQueries() { return queries; }
+    public String getBaseUrl() { return baseUrl; }
+    public String getOut() { return out; }
+}
@@ -0,0 +1,203 @@
+package com.fuzfriend.productsapi.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fuzfriend.productsapi.dto.ProductQueryDto;
+import com.fuzfriend.productsapi.service.QueryLog;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generates the request stream: endpoints are drawn by the configured mix, and keys within each
+ * endpoint are skewed so that {@code hotTrafficFraction} of requests go to the first
+ * {@code hotKeyFraction} of the key space.
+ * <p>
+ * {@code --queries} names a JSON array that replaces the generated searches. A list of
+ * {@link ProductQueryDto} becomes the search pool, most popular first. A list of {@link QueryLog.Entry},
+ * as the API persists its query log, is replayed as is: every request is a logged page, count or search,
+ * drawn in proportion to its count and sent in its logged format, and the mix and skew options don't apply.
+ */
+public class Workload {
+    public static final List<String> ENDPOINTS = List.of("search", "page", "count", "byId");
+
+    private static final String[] CATEGORIES = {"Smartphones", "Laptops", "Headphones", "Footwear", "Accessories",
+            "Gaming", "Home Appliances", "Beauty", "Watches", "Cameras"};
+    private static final String[] BRANDS = {"Apple", "Samsung", "Sony", "Nike", "Adidas", "Dell", "HP",
+            "LG", "Canon", "Panasonic", "Bose", "JBL", "Microsoft", "Asus", "Lenovo"};
+    private static final String[] COLORS = {"Black", "White", "Blue", "Red", "Green", "Silver", "Grey", "Gold"};
+    private static final String[] SORTS = {"title", "price", "rating", "brand"};
+    private static final int PAGES = 50;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final Map<String, String> ACCEPT_BY_CODEC = Map.of(
+            "json", "application/json",
+            "smile", "application/x-jackson-smile",
+            "cbor", "application/cbor");
+
+    public record Request(String endpoint, HttpRequest http) {}
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String baseUrl;
+    private final Random random;
+    private final Map<String, Long> mix = new LinkedHashMap<>();
+    private final String[] mixEndpoints;
+    private final int[] mixCumulative;
+    private final List<String> searchBodies = new ArrayList<>();
+    private final List<Request> replay = new ArrayList<>();
+    private final long[] replayCumulative;
+    private final int productCount;
+    private final double hotKeyFraction;
+    private final double hotTrafficFraction;
+
+    /** {@code productCount} is the size of the target's catalog; by-id requests draw from ids 1..productCount. */
+    public Workload(LoadTestOptions options, String baseUrl, int productCount) throws IOException {
+        this.baseUrl = baseUrl;
+        this.random = new Random(options.getSeed());
+        this.productCount = Math.max(1, productCount);
+        this.hotKeyFraction = options.getHotKeyFraction();
+        this.hotTrafficFraction = options.getHotTrafficFraction();
+
+        JsonNode queries = options.getQueries() == null ? null : readQueries(options.getQueries());
+        if (queries != null && queries.get(0).has("kind")) {
+            this.replayCumulative = loadQueryLog(queries);
+            this.mixEndpoints = new String[0];
+            this.mixCumulative = new int[0];
+            return;
+        }
+        this.replayCumulative = null;
+        options.getMix().forEach((endpoint, weight) -> mix.put(endpoint, (long) weight));
+        if (queries != null) {
+            for (ProductQueryDto q : mapper.convertValue(queries, new TypeReference<List<ProductQueryDto>>() {})) {
+                searchBodies.add(mapper.writeValueAsString(q));
+            }
+        } else {
+            for (int i = 0; i < options.getDistinctQueries(); i++) {
+                searchBodies.add(mapper.writeValueAsString(randomQuery()));
+            }
+        }
+
+        this.mixEndpoints = mix.keySet().toArray(new String[0]);
+        this.mixCumulative = new int[mixEndpoints.length];
+        int total = 0;
+        for (int i = 0; i < mixEndpoints.length; i++) {
+            total += mix.get(mixEndpoints[i]).intValue();
+            mixCumulative[i] = total;
+        }
+    }
+
+    /** The endpoints requests are drawn from, with their relative weights. */
+    public Map<String, Long> mix() { return mix; }
+
+    /** Whether requests replay a query log, in which case the mix and skew options were not used. */
+    public boolean replaysQueryLog() { return replayCumulative != null; }
+
+    /** Size of the search pool, or the number of logged queries being replayed. */
+    public int distinctQueries() { return replayCumulative == null ? searchBodies.size() : replay.size(); }
+
+    private JsonNode readQueries(String path) throws IOException {
+        JsonNode root = mapper.readTree(new File(path));
+        if (root == null || !root.isArray() || root.isEmpty()) {
+            throw new IllegalArgumentException("--queries must name a non-empty JSON array: " + path);
+        }
+        return root;
+    }
+
+    private long[] loadQueryLog(JsonNode queries) throws IOException {
+        List<QueryLog.Entry> entries = mapper.convertValue(queries, new TypeReference<List<QueryLog.Entry>>() {});
+        long[] cumulative = new long[entries.size()];
+        long total = 0;
+        for (QueryLog.Entry entry : entries) {
+            String accept = ACCEPT_BY_CODEC.get(entry.getCodec());
+            if (entry.getKind() == null || accept == null) {
+                throw new IllegalArgumentException("Query log entry without a known kind and codec: "
+                        + entry.getKind() + ", " + entry.getCodec());
+            }
+            ProductQueryDto q = entry.getQuery() == null ? new ProductQueryDto() : entry.getQuery();
+            String endpoint = switch (entry.getKind()) {
+                case SEARCH -> "search";
+                case PAGE -> "page";
+                case COUNT -> "count";
+            };
+            HttpRequest.Builder http = switch (entry.getKind()) {
+                case SEARCH -> HttpRequest.newBuilder(uri("/api/products/search"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(q)));
+                case PAGE -> HttpRequest.newBuilder(uri("/api/products?page=" + q.getPage() + "&pageSize=" + q.getPageSize())).GET();
+                case COUNT -> HttpRequest.newBuilder(uri("/api/products/count")).GET();
+            };
+            long weight = Math.max(1, entry.getCount());
+            mix.merge(endpoint, weight, Long::sum);
+            total += weight;
+            cumulative[replay.size()] = total;
+            replay.add(new Request(endpoint, http.header("Accept", accept).timeout(TIMEOUT).build()));
+        }
+        return cumulative;
+    }
+
+    /** Not thread-safe: called only from the arrival scheduler. */
+    public Request next() {
+        if (replayCumulative != null) {
+            long roll = Math.floorMod(random.nextLong(), replayCumulative[replayCumulative.length - 1]);
+            int i = Arrays.binarySearch(replayCumulative, roll);
+            return replay.get(i >= 0 ? i + 1 : -i - 1);
+        }
+        int roll = random.nextInt(mixCumulative[mixCumulative.length - 1]);
+        String endpoint = mixEndpoints[0];
+        for (int i = 0; i < mixCumulative.length; i++) {
+            if (roll < mixCumulative[i]) {
+                endpoint = mixEndpoints[i];
+                break;
+            }
+        }
+        HttpRequest.Builder http = switch (endpoint) {
+            case "search" -> HttpRequest.newBuilder(uri("/api/products/search"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(searchBodies.get(skewed(searchBodies.size()))));
+            case "page" -> HttpRequest.newBuilder(uri("/api/products?page=" + (skewed(PAGES) + 1) + "&pageSize=20")).GET();
+            case "count" -> HttpRequest.newBuilder(uri("/api/products/count")).GET();
+            default -> HttpRequest.newBuilder(uri("/api/products/" + (skewed(productCount) + 1))).GET();
+        };
+        return new Request(endpoint, http.header("Accept", "application/json").timeout(TIMEOUT).build());
+    }
+
+    private int skewed(int size) {
+        int hot = Math.max(1, (int) (size * hotKeyFraction));
+        if (hot >= size || random.nextDouble() < hotTrafficFraction) return random.nextInt(hot);
+        return hot + random.nextInt(size - hot);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private ProductQueryDto randomQuery() {
+        ProductQueryDto q = new ProductQueryDto();
+        if (random.nextDouble() < 0.6) q.setCategories(List.of(CATEGORIES[random.nextInt(CATEGORIES.length)]));
+        if (random.nextDouble() < 0.3) q.setBrands(List.of(BRANDS[random.nextInt(BRANDS.length)]));
+        if (random.nextDouble() < 0.2) q.setColours(List.of(COLORS[random.nextInt(COLORS.length)]));
+        if (random.nextDouble() < 0.2) {
+            int min = 10 + random.nextInt(500);
+            q.setMinPrice(BigDecimal.valueOf(min));
+            q.setMaxPrice(BigDecimal.valueOf(min + 100 + random.nextInt(1000)));
+        }
+        if (random.nextDouble() < 0.15) q.setMinRating((double) (3 + random.nextInt(2)));
+        if (random.nextDouble() < 0.1) q.setOnPromotion(true);
+        if (random.nextDouble() < 0.1) q.setQuery(BRANDS[random.nextInt(BRANDS.length)].toLowerCase());
+        q.setSortBy(SORTS[random.nextInt(SORTS.length)]);
+        q.setSortDirection(random.nextBoolean() ? "asc" : "desc");
+        q.setPage(1 + random.nextInt(3));
+        q.setPageSize(20);
+        return q;
+    }
+}